@@ -40,6 +40,12 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests.all {
+            // Timing loops in the unit tests only run when asked for: ./gradlew test -Pbenchmarks
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
 }
 
 dependencies {
@@ -53,6 +59,8 @@ dependencies {
     implementation(libs.firebase.auth)
     implementation(libs.firebase.firestore)
     implementation(libs.firebase.storage)
+    // Orders are placed by the placeOrder Cloud Function (functions/index.js)
+    implementation(libs.firebase.functions)
     implementation(libs.firebase.appcheck.playintegrity)
 
     // Google Play Services - REQUIRED for Firebase Auth
@@ -70,7 +78,7 @@ dependencies {
     implementation(libs.play.services.maps)
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
 
-    // Gson for JSON serialization (required for CartManager)
+    // Gson JsonReader/JsonWriter streams (used by com.grocerygo.codec)
     implementation("com.google.code.gson:gson:2.10.1")
 
     testImplementation(libs.junit)
@@ -0,0 +1,127 @@
+package com.grocerygo.firebase;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.functions.FirebaseFunctions;
+import com.grocerygo.models.CartItem;
+import com.grocerygo.pricing.CartItemLines;
+import com.grocerygo.pricing.PriceBreakdown;
+import com.grocerygo.pricing.PricingPlan;
+import com.grocerygo.pricing.PricingRules;
+
+import org.junit.rules.ExternalResource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * FirestoreEmulatorRule - Firestore, Auth and Functions pointed at the emulators for load tests
+ * and benchmarks. Start them with firebase emulators:start (ports in firebase.json). The
+ * Firestore emulator address comes from the firestoreEmulator runner argument, e.g.
+ *   -Pandroid.testInstrumentationRunnerArguments.firestoreEmulator=10.0.2.2:8080
+ * and the test is skipped when it isn't given; the Auth and Functions emulators default to
+ * the same host on ports 9099 and 5001 (authEmulator / functionsEmulator to override).
+ * Uses a separate FirebaseApp named after the test, so the emulator settings don't touch the
+ * app's own instances, signed in as an anonymous admin so tests can seed products.
+ */
+public class FirestoreEmulatorRule extends ExternalResource {
+    private static final int DEFAULT_AUTH_PORT = 9099;
+    private static final int DEFAULT_FUNCTIONS_PORT = 5001;
+
+    // useEmulator can only be called before an instance is first used, so configure each once
+    private static final Map<String, FirebaseApp> configured = new HashMap<>();
+
+    private final String appName;
+    private FirebaseApp app;
+
+    public FirestoreEmulatorRule(String appName) {
+        this.appName = appName;
+    }
+
+    @Override
+    protected void before() throws Exception {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String firestore = args.getString("firestoreEmulator");
+        assumeTrue("No firestoreEmulator argument, skipping", firestore != null);
+        String host = host(firestore);
+        app = connect(appName, firestore,
+                args.getString("authEmulator", host + ":" + DEFAULT_AUTH_PORT),
+                args.getString("functionsEmulator", host + ":" + DEFAULT_FUNCTIONS_PORT));
+    }
+
+    private static synchronized FirebaseApp connect(String appName, String firestore,
+                                                    String auth, String functions) throws Exception {
+        FirebaseApp app = configured.get(appName);
+        if (app != null) return app;
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        try {
+            app = FirebaseApp.getInstance(appName);
+        } catch (IllegalStateException e) {
+            app = FirebaseApp.initializeApp(context, FirebaseApp.getInstance().getOptions(), appName);
+        }
+        FirebaseFirestore db = FirebaseFirestore.getInstance(app);
+        db.useEmulator(host(firestore), port(firestore));
+        db.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                .setPersistenceEnabled(false)
+                .build());
+        FirebaseFunctions.getInstance(app).useEmulator(host(functions), port(functions));
+
+        // Orders are placed as the signed-in user; seeding products takes the admin role
+        FirebaseAuth firebaseAuth = FirebaseAuth.getInstance(app);
+        firebaseAuth.useEmulator(host(auth), port(auth));
+        String uid = Tasks.await(firebaseAuth.signInAnonymously(), 30, TimeUnit.SECONDS).getUser().getUid();
+        Tasks.await(db.collection("users").document(uid)
+                .set(Collections.singletonMap("role", "admin")), 30, TimeUnit.SECONDS);
+
+        configured.put(appName, app);
+        return app;
+    }
+
+    private static String host(String address) {
+        return address.split(":")[0];
+    }
+
+    private static int port(String address) {
+        return Integer.parseInt(address.split(":")[1]);
+    }
+
+    public FirebaseFirestore getDb() {
+        return FirebaseFirestore.getInstance(app);
+    }
+
+    public FirebaseFunctions getFunctions() {
+        return FirebaseFunctions.getInstance(app);
+    }
+
+    /**
+     * What the placeOrder function charges for quantity units at price under the default
+     * pricing rules (the emulator has no config/pricing), to put in a test order's total
+     */
+    public static double totalAtDefaultPricing(double price, int quantity) {
+        PriceBreakdown breakdown = new PriceBreakdown();
+        PricingPlan.compile(new PricingRules()).price(new CartItemLines().wrap(Collections.singletonList(
+                new CartItem("", "", null, price, null, quantity))), null, breakdown);
+        return breakdown.getTotal();
+    }
+
+    /**
+     * An integer runner argument (-Pandroid.testInstrumentationRunnerArguments.<name>=...)
+     */
+    public int intArg(String name, int defaultValue) {
+        Bundle args = InstrumentationRegistry.getArguments();
+        return Integer.parseInt(args.getString(name, String.valueOf(defaultValue)));
+    }
+}
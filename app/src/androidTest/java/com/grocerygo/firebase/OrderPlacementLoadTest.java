@@ -0,0 +1,108 @@
+package com.grocerygo.firebase;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.models.Order;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load test for OrderRepository.placeOrderAtomically against the Firebase emulators.
+ * Fires many concurrent checkouts at one product and checks that it is never oversold,
+ * logging commit throughput and how often transactions had to retry.
+ *
+ * Start the emulators (firebase emulators:start) and run with:
+ *   ./gradlew connectedAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.firestoreEmulator=10.0.2.2:8080 \
+ *     -Pandroid.testInstrumentationRunnerArguments.checkouts=300 \
+ *     -Pandroid.testInstrumentationRunnerArguments.stock=100
+ * Skipped when no emulator is given.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OrderPlacementLoadTest {
+    private static final String TAG = "OrderPlacementLoadTest";
+
+    @Rule
+    public final FirestoreEmulatorRule emulator = new FirestoreEmulatorRule(TAG);
+
+    private FirebaseFirestore db;
+    private int checkouts;
+    private int stock;
+
+    @Before
+    public void setUp() {
+        db = emulator.getDb();
+        checkouts = emulator.intArg("checkouts", 300);
+        stock = emulator.intArg("stock", 100);
+    }
+
+    @Test
+    public void concurrentCheckoutsNeverOversell() throws Exception {
+        DocumentReference product = db.collection("products").document("load_test_" + System.currentTimeMillis());
+        Map<String, Object> seed = new HashMap<>();
+        seed.put("name", "Load test product");
+        seed.put("price", 10.0);
+        seed.put("stockQuantity", stock);
+        seed.put("available", true);
+        Tasks.await(product.set(seed), 30, TimeUnit.SECONDS);
+
+        OrderRepository repository = new OrderRepository(db, emulator.getFunctions());
+        List<Task<String>> placements = new ArrayList<>(checkouts);
+        double total = FirestoreEmulatorRule.totalAtDefaultPricing(10.0, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            Order.OrderItem item = new Order.OrderItem(product.getId(), "Load test product", 1, 10.0, null);
+            Order order = new Order(null, "load-test-user-" + i, Collections.singletonList(item),
+                    total, "Load test address", "Cash on Delivery");
+            placements.add(repository.placeOrderAtomically(order));
+        }
+        Tasks.await(Tasks.whenAllComplete(placements), 5, TimeUnit.MINUTES);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        int placed = 0;
+        int outOfStock = 0;
+        int failed = 0;
+        for (Task<String> placement : placements) {
+            if (placement.isSuccessful()) {
+                placed++;
+            } else if (placement.getException() instanceof InsufficientStockException) {
+                outOfStock++;
+            } else {
+                failed++;
+                Log.w(TAG, "Checkout failed", placement.getException());
+            }
+        }
+
+        long attempts = repository.getTransactionAttemptCount();
+        long retries = attempts - checkouts;
+        long remaining = Tasks.await(product.get(), 30, TimeUnit.SECONDS).getLong("stockQuantity");
+        Log.i(TAG, String.format("%d checkouts for %d units in %d ms: placed=%d outOfStock=%d failed=%d "
+                        + "throughput=%.1f commits/s attempts=%d abortRate=%.1f%% remainingStock=%d",
+                checkouts, stock, elapsedMs, placed, outOfStock, failed,
+                placed * 1000.0 / Math.max(1, elapsedMs), attempts,
+                retries * 100.0 / Math.max(1, attempts), remaining));
+
+        assertTrue("Sold more than was in stock", placed <= stock);
+        assertEquals("Stock doesn't match the orders placed", stock - placed, remaining);
+        assertEquals(checkouts, placed + outOfStock + failed);
+    }
+}
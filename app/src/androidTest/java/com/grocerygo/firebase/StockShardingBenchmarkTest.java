@@ -0,0 +1,152 @@
+package com.grocerygo.firebase;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.models.Order;
+import com.grocerygo.utils.StockShardMigrator;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmark of checkout commit rates on one product document versus sharded stock counters,
+ * against the Firebase emulators. Both products get the same stock and the same burst of
+ * concurrent checkouts; throughput and retry rate of each are logged, and neither may oversell.
+ *
+ * Start the emulators (firebase emulators:start) and run with:
+ *   ./gradlew connectedAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.grocerygo.firebase.StockShardingBenchmarkTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.firestoreEmulator=10.0.2.2:8080 \
+ *     -Pandroid.testInstrumentationRunnerArguments.checkouts=300 \
+ *     -Pandroid.testInstrumentationRunnerArguments.stock=1000 \
+ *     -Pandroid.testInstrumentationRunnerArguments.shards=10
+ * Skipped when no emulator is given.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StockShardingBenchmarkTest {
+    private static final String TAG = "StockShardingBenchmark";
+
+    @Rule
+    public final FirestoreEmulatorRule emulator = new FirestoreEmulatorRule(TAG);
+
+    private FirebaseFirestore db;
+    private int checkouts;
+    private int stock;
+    private int shards;
+
+    @Before
+    public void setUp() {
+        db = emulator.getDb();
+        checkouts = emulator.intArg("checkouts", 300);
+        stock = emulator.intArg("stock", 1000);
+        shards = emulator.intArg("shards", StockShards.DEFAULT_SHARDS);
+    }
+
+    @Test
+    public void compareSingleDocumentAndShardedCommitRates() throws Exception {
+        DocumentReference single = seedProduct("bench_single_");
+        DocumentReference sharded = seedProduct("bench_sharded_");
+        int migrated = Tasks.await(new StockShardMigrator(db)
+                .migrate(Collections.singletonList(sharded.getId()), shards), 30, TimeUnit.SECONDS);
+        assertEquals(1, migrated);
+
+        Result singleResult = runCheckouts(single);
+        Result shardedResult = runCheckouts(sharded);
+        Log.i(TAG, "single-document: " + singleResult);
+        Log.i(TAG, shards + " shards:        " + shardedResult);
+        Log.i(TAG, String.format("Sharding speed-up: %.2fx",
+                shardedResult.throughput() / Math.max(0.001, singleResult.throughput())));
+
+        long singleRemaining = Tasks.await(single.get(), 30, TimeUnit.SECONDS).getLong("stockQuantity");
+        assertEquals("Single-document stock doesn't match the orders placed",
+                stock - singleResult.placed, singleRemaining);
+
+        long shardedRemaining = 0;
+        for (DocumentSnapshot shard : Tasks.await(StockShards.shards(db, sharded.getId()).get(),
+                30, TimeUnit.SECONDS).getDocuments()) {
+            Long count = shard.getLong(StockShards.FIELD_COUNT);
+            assertTrue("Shard went negative", count != null && count >= 0);
+            shardedRemaining += count;
+        }
+        assertEquals("Sharded stock doesn't match the orders placed",
+                stock - shardedResult.placed, shardedRemaining);
+    }
+
+    private DocumentReference seedProduct(String prefix) throws Exception {
+        DocumentReference product = db.collection("products").document(prefix + System.currentTimeMillis());
+        Map<String, Object> seed = new HashMap<>();
+        seed.put("name", "Benchmark product");
+        seed.put("price", 10.0);
+        seed.put("stockQuantity", stock);
+        seed.put("available", true);
+        Tasks.await(product.set(seed), 30, TimeUnit.SECONDS);
+        return product;
+    }
+
+    private Result runCheckouts(DocumentReference product) throws Exception {
+        OrderRepository repository = new OrderRepository(db, emulator.getFunctions());
+        List<Task<String>> placements = new ArrayList<>(checkouts);
+        double total = FirestoreEmulatorRule.totalAtDefaultPricing(10.0, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            Order.OrderItem item = new Order.OrderItem(product.getId(), "Benchmark product", 1, 10.0, null);
+            Order order = new Order(null, "bench-user-" + i, Collections.singletonList(item),
+                    total, "Benchmark address", "Cash on Delivery");
+            placements.add(repository.placeOrderAtomically(order));
+        }
+        Tasks.await(Tasks.whenAllComplete(placements), 5, TimeUnit.MINUTES);
+
+        Result result = new Result();
+        result.elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        for (Task<String> placement : placements) {
+            if (placement.isSuccessful()) {
+                result.placed++;
+            } else {
+                result.failed++;
+                Log.w(TAG, "Checkout failed", placement.getException());
+            }
+        }
+        result.attempts = repository.getTransactionAttemptCount();
+        result.checkouts = checkouts;
+        return result;
+    }
+
+    private static class Result {
+        int checkouts;
+        int placed;
+        int failed;
+        long attempts;
+        long elapsedMs;
+
+        double throughput() {
+            return placed * 1000.0 / Math.max(1, elapsedMs);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("placed=%d failed=%d in %d ms, throughput=%.1f commits/s, "
+                            + "attempts=%d abortRate=%.1f%%",
+                    placed, failed, elapsedMs, throughput(), attempts,
+                    (attempts - checkouts) * 100.0 / Math.max(1, attempts));
+        }
+    }
+}
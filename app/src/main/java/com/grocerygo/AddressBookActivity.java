@@ -33,6 +33,8 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.AddressCodec;
+import com.grocerygo.codec.Codecs;
 import com.grocerygo.models.Address;
 
 import org.json.JSONArray;
@@ -165,7 +167,7 @@ public class AddressBookActivity extends AppCompatActivity {
 
                     if (queryDocumentSnapshots != null && !queryDocumentSnapshots.isEmpty()) {
                         for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                            Address address = document.toObject(Address.class);
+                            Address address = Codecs.decode(document, AddressCodec.INSTANCE);
                             if (address != null) {
                                 if (address.getAddressId() == null || address.getAddressId().isEmpty()) {
                                     address.setAddressId(document.getId());
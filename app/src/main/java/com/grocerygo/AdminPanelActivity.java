@@ -1,8 +1,6 @@
 package com.grocerygo;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
@@ -10,6 +8,7 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -19,25 +18,33 @@ import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.UserCodec;
 import com.grocerygo.firebase.AuthRepository;
+import com.grocerygo.firebase.OrderRepository;
+import com.grocerygo.firebase.OrderStore;
 import com.grocerygo.models.Order;
+import com.grocerygo.models.OrderStatus;
 import com.grocerygo.models.User;
 import com.grocerygo.adapters.OrderAdapter;
+import com.grocerygo.utils.OrderIndex;
+import com.grocerygo.utils.OrderTransitionScheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
-public class AdminPanelActivity extends AppCompatActivity {
+public class AdminPanelActivity extends AppCompatActivity implements OrderStore.Listener {
+    private static final long AUTO_DELIVERY_DELAY_MS = 20000; // 20 seconds
 
     private RecyclerView rvAdminOrders;
     private OrderAdapter orderAdapter;
-    private List<Order> allOrders;
-    private List<Order> filteredOrders;
+    private OrderStore orderStore;
     private List<User> deliveryPartners;
 
     private TextView tvTotalOrders, tvPendingOrders, tvConfirmedOrders, tvDeliveredOrders;
@@ -45,11 +52,21 @@ public class AdminPanelActivity extends AppCompatActivity {
     private FrameLayout progressOverlay;
     private LinearLayout llEmptyState;
     private ImageView btnBack;
+    private TextView tvBulkActions;
 
     private FirebaseFirestore db;
     private FirebaseAuth auth;
     private AuthRepository authRepository;
-    private String currentFilter = "pending";
+    private OrderRepository orderRepository;
+    private OrderStatus currentFilter = OrderStatus.PENDING;
+
+    // Back leaves selection mode before it leaves the screen
+    private final OnBackPressedCallback clearSelectionOnBack = new OnBackPressedCallback(false) {
+        @Override
+        public void handleOnBackPressed() {
+            orderAdapter.clearSelection();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,6 +76,8 @@ public class AdminPanelActivity extends AppCompatActivity {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
         authRepository = new AuthRepository();
+        orderRepository = new OrderRepository();
+        orderStore = new OrderStore(OrderStore.allOrdersQuery(), this);
 
         // Verify user is admin
         verifyAdminAccess();
@@ -103,20 +122,21 @@ public class AdminPanelActivity extends AppCompatActivity {
         progressOverlay = findViewById(R.id.progressOverlay);
         llEmptyState = findViewById(R.id.llEmptyState);
         btnBack = findViewById(R.id.btnBack);
+        tvBulkActions = findViewById(R.id.tvBulkActions);
 
-        allOrders = new ArrayList<>();
-        filteredOrders = new ArrayList<>();
         deliveryPartners = new ArrayList<>();
     }
 
     private void setupRecyclerView() {
         // Use the existing OrderAdapter with long click for admin actions
-        orderAdapter = new OrderAdapter(this, filteredOrders);
+        orderAdapter = new OrderAdapter(this, orderStore.getIndex().getOrders(currentFilter));
         rvAdminOrders.setLayoutManager(new LinearLayoutManager(this));
         rvAdminOrders.setAdapter(orderAdapter);
 
         // Add item click listener for admin actions
         orderAdapter.setOnOrderClickListener(order -> showOrderActionsDialog(order));
+        // Long-press selects orders for bulk actions
+        orderAdapter.setSelectionEnabled(true, this::onSelectionChanged);
     }
 
     private void setupTabs() {
@@ -126,16 +146,16 @@ public class AdminPanelActivity extends AppCompatActivity {
                 int position = tab.getPosition();
                 switch (position) {
                     case 0:
-                        currentFilter = "pending";
+                        currentFilter = OrderStatus.PENDING;
                         break;
                     case 1:
-                        currentFilter = "confirmed";
+                        currentFilter = OrderStatus.CONFIRMED;
                         break;
                     case 2:
-                        currentFilter = "delivered";
+                        currentFilter = OrderStatus.DELIVERED;
                         break;
                     case 3:
-                        currentFilter = "cancelled";
+                        currentFilter = OrderStatus.CANCELLED;
                         break;
                 }
                 filterOrders();
@@ -151,6 +171,8 @@ public class AdminPanelActivity extends AppCompatActivity {
 
     private void setupClickListeners() {
         btnBack.setOnClickListener(v -> finish());
+        tvBulkActions.setOnClickListener(v -> showBulkActionsDialog());
+        getOnBackPressedDispatcher().addCallback(this, clearSelectionOnBack);
     }
 
     private void loadDeliveryPartners() {
@@ -160,7 +182,7 @@ public class AdminPanelActivity extends AppCompatActivity {
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     deliveryPartners.clear();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        User user = document.toObject(User.class);
+                        User user = Codecs.decode(document, UserCodec.INSTANCE);
                         deliveryPartners.add(user);
                     }
                 })
@@ -171,46 +193,50 @@ public class AdminPanelActivity extends AppCompatActivity {
 
     private void loadAllOrders() {
         showLoading(true);
+        // Loads everything once, then only receives the orders that change
+        orderStore.start();
+    }
 
-        db.collection("orders")
-                .orderBy("orderDate", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    allOrders.clear();
-
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Order order = document.toObject(Order.class);
-                        allOrders.add(order);
-                    }
-
-                    updateOrderStats();
-                    filterOrders();
-                    showLoading(false);
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Failed to load orders: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+    @Override
+    public void onOrdersLoaded(OrderIndex index) {
+        updateOrderStats();
+        filterOrders();
+        showLoading(false);
     }
 
-    private void filterOrders() {
-        filteredOrders.clear();
-
-        for (Order order : allOrders) {
-            if (currentFilter.equals("pending") && "pending".equals(order.getStatus())) {
-                filteredOrders.add(order);
-            } else if (currentFilter.equals("confirmed") && "confirmed".equals(order.getStatus())) {
-                filteredOrders.add(order);
-            } else if (currentFilter.equals("delivered") && "delivered".equals(order.getStatus())) {
-                filteredOrders.add(order);
-            } else if (currentFilter.equals("cancelled") && "cancelled".equals(order.getStatus())) {
-                filteredOrders.add(order);
+    @Override
+    public void onOrdersChanged(List<OrderStore.Change> changes) {
+        // The adapter shows the live bucket, so it only needs to hear where it changed
+        for (OrderStore.Change change : changes) {
+            Order previous = change.getPrevious();
+            Order current = change.getCurrent();
+
+            if (previous != null && OrderStatus.of(previous.getStatus()) == currentFilter) {
+                orderAdapter.notifyItemRemoved(change.getPreviousPosition());
+            }
+            if (current != null && OrderStatus.of(current.getStatus()) == currentFilter) {
+                orderAdapter.notifyItemInserted(change.getCurrentPosition());
             }
         }
 
-        orderAdapter.notifyDataSetChanged();
+        updateOrderStats();
+        updateEmptyState();
+    }
+
+    @Override
+    public void onOrdersError(Exception e) {
+        showLoading(false);
+        Toast.makeText(this, "Failed to load orders: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+    }
+
+    private void filterOrders() {
+        orderAdapter.clearSelection();
+        orderAdapter.setOrders(orderStore.getIndex().getOrders(currentFilter));
+        updateEmptyState();
+    }
 
-        if (filteredOrders.isEmpty()) {
+    private void updateEmptyState() {
+        if (orderStore.getIndex().getCount(currentFilter) == 0) {
             llEmptyState.setVisibility(View.VISIBLE);
             rvAdminOrders.setVisibility(View.GONE);
         } else {
@@ -220,25 +246,11 @@ public class AdminPanelActivity extends AppCompatActivity {
     }
 
     private void updateOrderStats() {
-        int total = allOrders.size();
-        int pending = 0;
-        int confirmed = 0;
-        int delivered = 0;
-
-        for (Order order : allOrders) {
-            if ("pending".equals(order.getStatus())) {
-                pending++;
-            } else if ("confirmed".equals(order.getStatus())) {
-                confirmed++;
-            } else if ("delivered".equals(order.getStatus())) {
-                delivered++;
-            }
-        }
-
-        tvTotalOrders.setText(String.valueOf(total));
-        tvPendingOrders.setText(String.valueOf(pending));
-        tvConfirmedOrders.setText(String.valueOf(confirmed));
-        tvDeliveredOrders.setText(String.valueOf(delivered));
+        OrderIndex index = orderStore.getIndex();
+        tvTotalOrders.setText(String.valueOf(index.getCount()));
+        tvPendingOrders.setText(String.valueOf(index.getCount(OrderStatus.PENDING)));
+        tvConfirmedOrders.setText(String.valueOf(index.getCount(OrderStatus.CONFIRMED)));
+        tvDeliveredOrders.setText(String.valueOf(index.getCount(OrderStatus.DELIVERED)));
     }
 
     private void showOrderActionsDialog(Order order) {
@@ -297,6 +309,10 @@ public class AdminPanelActivity extends AppCompatActivity {
     }
 
     private void showDeliveryPartnerDialog(Order order) {
+        pickDeliveryPartner(partner -> assignDeliveryPartner(order, partner));
+    }
+
+    private void pickDeliveryPartner(Consumer<User> onPicked) {
         if (deliveryPartners.isEmpty()) {
             Toast.makeText(this, "No delivery partners available. Please add delivery partners first.", Toast.LENGTH_LONG).show();
             return;
@@ -311,12 +327,165 @@ public class AdminPanelActivity extends AppCompatActivity {
         builder.setTitle("Select Delivery Partner");
         builder.setItems(partnerNames, (dialog, which) -> {
             User selectedPartner = deliveryPartners.get(which);
-            assignDeliveryPartner(order, selectedPartner);
+            onPicked.accept(selectedPartner);
         });
         builder.setNegativeButton("Cancel", null);
         builder.show();
     }
 
+    private void onSelectionChanged(int selectedCount) {
+        tvBulkActions.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+        tvBulkActions.setText("Actions (" + selectedCount + ")");
+        clearSelectionOnBack.setEnabled(selectedCount > 0);
+    }
+
+    private void showBulkActionsDialog() {
+        // Orders can change status while selected; only act on those still in this tab
+        List<String> orderIds = new ArrayList<>();
+        List<String> orderIdsWithPartner = new ArrayList<>();
+        for (String orderId : orderAdapter.getSelectedOrderIds()) {
+            Order order = orderStore.getIndex().get(orderId);
+            if (order != null && OrderStatus.of(order.getStatus()) == currentFilter) {
+                orderIds.add(orderId);
+                if (order.getAssignedDeliveryPartner() != null) {
+                    orderIdsWithPartner.add(orderId);
+                }
+            }
+        }
+        if (orderIds.isEmpty()) {
+            orderAdapter.clearSelection();
+            return;
+        }
+
+        List<String> options = new ArrayList<>();
+        if (currentFilter == OrderStatus.PENDING) {
+            options.add("Assign Delivery Partner");
+            options.add("Confirm Orders");
+            options.add("Cancel Orders");
+        } else if (currentFilter == OrderStatus.CONFIRMED) {
+            options.add("Reassign Delivery Partner");
+            options.add("Mark as Delivered");
+            options.add("Cancel Orders");
+        } else {
+            Toast.makeText(this, "No bulk actions for " + currentFilter.getValue() + " orders", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] optionsArray = options.toArray(new String[0]);
+        new AlertDialog.Builder(this)
+                .setTitle(orderIds.size() + " orders selected")
+                .setItems(optionsArray, (dialog, which) -> {
+                    switch (optionsArray[which]) {
+                        case "Assign Delivery Partner":
+                        case "Reassign Delivery Partner":
+                            pickDeliveryPartner(partner -> bulkAssignDeliveryPartner(orderIds, partner));
+                            break;
+                        case "Confirm Orders":
+                            bulkConfirm(orderIds, orderIdsWithPartner);
+                            break;
+                        case "Mark as Delivered":
+                            applyBulkUpdate(orderIds, Collections.singletonMap("status",
+                                    OrderStatus.DELIVERED.getValue()), "delivered");
+                            break;
+                        case "Cancel Orders":
+                            new AlertDialog.Builder(this)
+                                    .setTitle("Cancel Orders")
+                                    .setMessage("Are you sure you want to cancel " + orderIds.size() + " orders?")
+                                    .setPositiveButton("Yes", (d, w) -> applyBulkUpdate(orderIds,
+                                            Collections.singletonMap("status", OrderStatus.CANCELLED.getValue()),
+                                            "cancelled"))
+                                    .setNegativeButton("No", null)
+                                    .show();
+                            break;
+                    }
+                })
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    /**
+     * Confirm the selected orders. An order can only be confirmed with a delivery partner, so
+     * if some have none, say how many and offer to assign one to them (which confirms them too)
+     * or to confirm just the others.
+     */
+    private void bulkConfirm(List<String> orderIds, List<String> orderIdsWithPartner) {
+        Map<String, Object> confirm = new HashMap<>();
+        confirm.put("confirmed", true);
+        confirm.put("status", OrderStatus.CONFIRMED.getValue());
+        if (orderIdsWithPartner.size() == orderIds.size()) {
+            applyBulkUpdate(orderIds, confirm, "confirmed");
+            return;
+        }
+
+        List<String> orderIdsWithoutPartner = new ArrayList<>(orderIds);
+        orderIdsWithoutPartner.removeAll(orderIdsWithPartner);
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle("No delivery partner")
+                .setMessage(orderIdsWithoutPartner.size() + " of " + orderIds.size()
+                        + " selected orders have no delivery partner and can't be confirmed without one.")
+                .setPositiveButton("Assign Partner", (d, w) -> pickDeliveryPartner(partner ->
+                        bulkAssignDeliveryPartner(orderIdsWithoutPartner, partner, () -> {
+                            if (!orderIdsWithPartner.isEmpty()) {
+                                applyBulkUpdate(orderIdsWithPartner, confirm, "confirmed");
+                            }
+                        })))
+                .setNegativeButton("Cancel", null);
+        if (!orderIdsWithPartner.isEmpty()) {
+            builder.setNeutralButton("Confirm " + orderIdsWithPartner.size() + " Only", (d, w) ->
+                    applyBulkUpdate(orderIdsWithPartner, confirm, "confirmed, "
+                            + orderIdsWithoutPartner.size() + " skipped without a delivery partner"));
+        }
+        builder.show();
+    }
+
+    private void bulkAssignDeliveryPartner(List<String> orderIds, User deliveryPartner) {
+        bulkAssignDeliveryPartner(orderIds, deliveryPartner, null);
+    }
+
+    private void bulkAssignDeliveryPartner(List<String> orderIds, User deliveryPartner, Runnable onAssigned) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("assignedDeliveryPartner", deliveryPartner.getUserId());
+        updates.put("deliveryPartnerName", deliveryPartner.getName());
+        // Automatically confirm orders when a delivery partner is assigned
+        updates.put("confirmed", true);
+        updates.put("status", OrderStatus.CONFIRMED.getValue());
+
+        applyBulkUpdate(orderIds, updates, "assigned to " + deliveryPartner.getName(), () -> {
+            for (String orderId : orderIds) {
+                scheduleAutoDelivery(orderId);
+            }
+            if (onAssigned != null) {
+                onAssigned.run();
+            }
+        });
+    }
+
+    /**
+     * One chunked batch write for every selected order; the order listener then
+     * delivers the changes, so there is no reload afterwards
+     */
+    private void applyBulkUpdate(List<String> orderIds, Map<String, Object> updates, String description) {
+        applyBulkUpdate(orderIds, updates, description, null);
+    }
+
+    private void applyBulkUpdate(List<String> orderIds, Map<String, Object> updates, String description,
+                                 Runnable onUpdated) {
+        showLoading(true);
+        orderRepository.updateOrders(orderIds, updates)
+                .addOnSuccessListener(aVoid -> {
+                    showLoading(false);
+                    orderAdapter.clearSelection();
+                    Toast.makeText(this, orderIds.size() + " orders " + description, Toast.LENGTH_SHORT).show();
+                    if (onUpdated != null) {
+                        onUpdated.run();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    showLoading(false);
+                    Toast.makeText(this, "Failed to update orders: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+    }
+
     private void assignDeliveryPartner(Order order, User deliveryPartner) {
         showLoading(true);
 
@@ -334,17 +503,8 @@ public class AdminPanelActivity extends AppCompatActivity {
                     showLoading(false);
                     Toast.makeText(this, "Delivery partner assigned and order confirmed! Auto-delivery in 20 seconds...", Toast.LENGTH_LONG).show();
 
-                    // Update local order object
-                    order.setAssignedDeliveryPartner(deliveryPartner.getUserId());
-                    order.setDeliveryPartnerName(deliveryPartner.getName());
-                    order.setConfirmed(true);
-                    order.setStatus("confirmed");
-
                     // Schedule automatic delivery after 20 seconds
-                    scheduleAutoDelivery(order);
-
-                    // Refresh the list
-                    loadAllOrders();
+                    scheduleAutoDelivery(order.getOrderId());
                 })
                 .addOnFailureListener(e -> {
                     showLoading(false);
@@ -353,30 +513,12 @@ public class AdminPanelActivity extends AppCompatActivity {
     }
 
     /**
-     * Automatically marks order as delivered after 20 seconds
+     * Automatically marks order as delivered after 20 seconds.
+     * The scheduler persists it, so it still happens if this screen is closed or the app restarts.
      */
-    private void scheduleAutoDelivery(Order order) {
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            // Update order status to delivered in Firestore
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("status", "delivered");
-
-            db.collection("orders")
-                    .document(order.getOrderId())
-                    .update(updates)
-                    .addOnSuccessListener(aVoid -> {
-                        Toast.makeText(this, "Order #" + order.getOrderId().substring(0, Math.min(8, order.getOrderId().length())) + " automatically delivered!", Toast.LENGTH_SHORT).show();
-
-                        // Update local order object
-                        order.setStatus("delivered");
-
-                        // Refresh the list to show updated status
-                        loadAllOrders();
-                    })
-                    .addOnFailureListener(e -> {
-                        Toast.makeText(this, "Failed to auto-deliver order: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    });
-        }, 20000); // 20 seconds delay
+    private void scheduleAutoDelivery(String orderId) {
+        OrderTransitionScheduler.getInstance(this).schedule(orderId,
+                OrderStatus.CONFIRMED, OrderStatus.DELIVERED, AUTO_DELIVERY_DELAY_MS);
     }
 
     private void confirmOrder(Order order) {
@@ -402,13 +544,6 @@ public class AdminPanelActivity extends AppCompatActivity {
                             .addOnSuccessListener(aVoid -> {
                                 showLoading(false);
                                 Toast.makeText(this, "Order confirmed successfully!", Toast.LENGTH_SHORT).show();
-
-                                // Update local order object
-                                order.setConfirmed(true);
-                                order.setStatus("confirmed");
-
-                                // Refresh the list
-                                loadAllOrders();
                             })
                             .addOnFailureListener(e -> {
                                 showLoading(false);
@@ -453,12 +588,6 @@ public class AdminPanelActivity extends AppCompatActivity {
                 .addOnSuccessListener(aVoid -> {
                     showLoading(false);
                     Toast.makeText(this, "Order status updated to " + status, Toast.LENGTH_SHORT).show();
-
-                    // Update local order object
-                    order.setStatus(status);
-
-                    // Refresh the list
-                    loadAllOrders();
                 })
                 .addOnFailureListener(e -> {
                     showLoading(false);
@@ -466,6 +595,12 @@ public class AdminPanelActivity extends AppCompatActivity {
                 });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        orderStore.stop();
+    }
+
     private void showLoading(boolean show) {
         progressOverlay.setVisibility(show ? View.VISIBLE : View.GONE);
     }
@@ -16,6 +16,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.grocerygo.adapters.CartItemAdapter;
 import com.grocerygo.app.R;
 import com.grocerygo.models.CartItem;
+import com.grocerygo.pricing.CartItemLines;
+import com.grocerygo.pricing.PriceBreakdown;
+import com.grocerygo.pricing.PricingEngine;
 import com.grocerygo.utils.CartManager;
 
 import java.util.List;
@@ -35,6 +38,8 @@ public class CartActivity extends AppCompatActivity implements CartManager.CartU
     private CartManager cartManager;
     private CartItemAdapter cartItemAdapter;
     private List<CartItem> cartItems;
+    private final PriceBreakdown breakdown = new PriceBreakdown();
+    private final CartItemLines pricedLines = new CartItemLines();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -106,6 +111,12 @@ public class CartActivity extends AppCompatActivity implements CartManager.CartU
     }
 
     private void loadCartItems() {
+        if (!cartManager.isReady()) {
+            // Saved cart is still loading in the background - populate once it is ready
+            cartManager.whenReady().addOnSuccessListener(this, aVoid -> loadCartItems());
+            return;
+        }
+
         try {
             cartItems = cartManager.getCartItems();
 
@@ -179,10 +190,12 @@ public class CartActivity extends AppCompatActivity implements CartManager.CartU
 
     private void updateOrderSummary() {
         try {
-            double subtotal = cartManager.getCartTotal();
-            double deliveryFee = subtotal >= 500 ? 0.0 : 40.0;
-            double discount = 0.0; // Can be implemented later
-            double total = subtotal + deliveryFee - discount;
+            // Tax is added at checkout, so the cart shows the total before tax
+            PricingEngine.getInstance().getPlan().price(pricedLines.wrap(cartItems), null, breakdown);
+            double subtotal = breakdown.getSubtotal();
+            double deliveryFee = breakdown.getDeliveryFee();
+            double discount = breakdown.getDiscount();
+            double total = breakdown.getTotalBeforeTax();
 
             if (tvSubtotal != null) {
                 tvSubtotal.setText(String.format(Locale.getDefault(), "₹%.2f", subtotal));
@@ -194,9 +207,9 @@ public class CartActivity extends AppCompatActivity implements CartManager.CartU
                     tvDeliveryFee.setText(String.format(Locale.getDefault(), "₹%.2f", deliveryFee));
                 }
             }
-            if (tvDiscount != null && discount > 0) {
+            if (tvDiscount != null) {
                 tvDiscount.setText(String.format(Locale.getDefault(), "-₹%.2f", discount));
-                tvDiscount.setVisibility(View.VISIBLE);
+                tvDiscount.setVisibility(discount > 0 ? View.VISIBLE : View.GONE);
             }
             if (tvTotal != null) {
                 tvTotal.setText(String.format(Locale.getDefault(), "₹%.2f", total));
@@ -215,10 +228,11 @@ public class CartActivity extends AppCompatActivity implements CartManager.CartU
         if (btnCheckout != null) {
             btnCheckout.setOnClickListener(v -> {
                 if (cartItems != null && !cartItems.isEmpty()) {
-                    // Calculate totals
-                    double subtotal = cartManager.getCartTotal();
-                    double deliveryFee = subtotal >= 500 ? 0.0 : 40.0;
-                    double total = subtotal + deliveryFee;
+                    // Checkout re-prices the cart itself; these are for logging and callers that read them
+                    PricingEngine.getInstance().getPlan().price(pricedLines.wrap(cartItems), null, breakdown);
+                    double subtotal = breakdown.getSubtotal();
+                    double deliveryFee = breakdown.getDeliveryFee();
+                    double total = breakdown.getTotalBeforeTax();
 
                     // Navigate to checkout with cart data
                     Intent intent = new Intent(CartActivity.this, CheckoutActivity.class);
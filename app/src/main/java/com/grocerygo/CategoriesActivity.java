@@ -1,31 +1,41 @@
 package com.grocerygo;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
-import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.grocerygo.adapters.CategoryGridAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.CategoryRepository;
+import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Category;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class CategoriesActivity extends AppCompatActivity {
+    private static final String TAG = "CategoriesActivity";
+    // productCount is kept up to date by every product write (ProductRepository), so it is
+    // trusted; it is only checked against the server once a day, in case it has drifted
+    private static final long RECOUNT_INTERVAL_MS = TimeUnit.HOURS.toMillis(24);
+    private static final String PREFS_CATALOG = "CatalogPrefs";
+    private static final String KEY_COUNTS_CHECKED_AT = "category_counts_checked_at";
 
     private RecyclerView rvCategories;
     private CategoryGridAdapter categoryAdapter;
@@ -37,7 +47,8 @@ public class CategoriesActivity extends AppCompatActivity {
     private EditText etSearch;
     private BottomNavigationView bottomNavigation;
 
-    private FirebaseFirestore db;
+    private CategoryRepository categoryRepository;
+    private ProductRepository productRepository;
     private int totalProducts = 0;
 
     @Override
@@ -61,7 +72,8 @@ public class CategoriesActivity extends AppCompatActivity {
         etSearch = findViewById(R.id.etSearch);
         bottomNavigation = findViewById(R.id.bottomNavigation);
 
-        db = FirebaseFirestore.getInstance();
+        categoryRepository = new CategoryRepository();
+        productRepository = new ProductRepository();
         categoryList = new ArrayList<>();
         filteredCategoryList = new ArrayList<>();
     }
@@ -142,71 +154,68 @@ public class CategoriesActivity extends AppCompatActivity {
     private void loadCategories() {
         showLoading(true);
 
-        db.collection("categories")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+        // Shared with the home screen through the catalog cache
+        categoryRepository.getAllCategories()
+                .addOnSuccessListener(categories -> {
                     categoryList.clear();
+                    categoryList.addAll(categories);
 
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Category category = document.toObject(Category.class);
-                        categoryList.add(category);
-                    }
-
-                    // Update stats
-                    // Load product counts for each category
-                    loadProductCounts();
-                })
-                .addOnFailureListener(e -> {
+                    // Paint with the counts stored on each category
+                    filteredCategoryList.clear();
+                    filteredCategoryList.addAll(categoryList);
+                    categoryAdapter.notifyDataSetChanged();
                     showLoading(false);
-                    Toast.makeText(this, "Failed to load categories: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
                     updateEmptyState();
+                    updateTotalProducts();
+
+                    if (productCountsAreDue()) {
+                        refreshProductCounts();
+                    }
                 });
     }
 
-    private void loadProductCounts() {
-        if (categoryList.isEmpty()) {
-            showLoading(false);
-            updateEmptyState();
-            return;
+    private boolean productCountsAreDue() {
+        long checkedAt = getSharedPreferences(PREFS_CATALOG, MODE_PRIVATE).getLong(KEY_COUNTS_CHECKED_AT, 0);
+        return System.currentTimeMillis() - checkedAt >= RECOUNT_INTERVAL_MS;
+    }
+
+    /**
+     * Ask the server for each category's product count in parallel and
+     * rebind a category's card only if its count actually changed
+     */
+    private void refreshProductCounts() {
+        List<Task<Long>> counts = new ArrayList<>(categoryList.size());
+        for (Category category : categoryList) {
+            Task<Long> count = productRepository.getProductCountByCategoryId(category.getCategoryId());
+            counts.add(count);
+            count.addOnSuccessListener(result -> {
+                if (isFinishing() || isDestroyed()) return;
+                int productCount = result.intValue();
+                if (productCount != category.getProductCount()) {
+                    category.setProductCount(productCount);
+                    int position = filteredCategoryList.indexOf(category);
+                    if (position >= 0) {
+                        categoryAdapter.notifyItemChanged(position);
+                    }
+                }
+                updateTotalProducts();
+            }).addOnFailureListener(e ->
+                    Log.w(TAG, "Could not count products for " + category.getName(), e));
         }
 
-        int[] loadedCount = {0};
-        totalProducts = 0;
+        // Only a complete check counts; after a failure the next visit tries again
+        Tasks.whenAllSuccess(counts).addOnSuccessListener(results -> {
+            SharedPreferences preferences = getSharedPreferences(PREFS_CATALOG, MODE_PRIVATE);
+            preferences.edit().putLong(KEY_COUNTS_CHECKED_AT, System.currentTimeMillis()).apply();
+        });
+    }
 
+    private void updateTotalProducts() {
+        totalProducts = 0;
         for (Category category : categoryList) {
-            db.collection("products")
-                    .whereEqualTo("categoryId", category.getCategoryId())
-                    .get()
-                    .addOnSuccessListener(queryDocumentSnapshots -> {
-                        int productCount = queryDocumentSnapshots.size();
-                        category.setProductCount(productCount);
-                        totalProducts += productCount;
-                        loadedCount[0]++;
-
-                        if (loadedCount[0] == categoryList.size()) {
-                            filteredCategoryList.clear();
-                            filteredCategoryList.addAll(categoryList);
-                            categoryAdapter.notifyDataSetChanged();
-
-                            // Update total products stat
-                            // tvTotalProducts.setText(totalProducts + "+");
-
-                            showLoading(false);
-                            updateEmptyState();
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        loadedCount[0]++;
-                        if (loadedCount[0] == categoryList.size()) {
-                            filteredCategoryList.clear();
-                            filteredCategoryList.addAll(categoryList);
-                            categoryAdapter.notifyDataSetChanged();
-                            showLoading(false);
-                            updateEmptyState();
-                        }
-                    });
+            totalProducts += category.getProductCount();
         }
+        // tvTotalProducts.setText(totalProducts + "+");
     }
 
     private void showLoading(boolean show) {
@@ -3,7 +3,9 @@ package com.grocerygo;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
+import android.text.InputType;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
@@ -22,17 +24,30 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.grocerygo.adapters.CheckoutCartAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.AddressCodec;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.firebase.FirebaseManager;
 import com.grocerygo.firebase.OrderRepository;
+import com.grocerygo.firebase.PriceCheck;
+import com.grocerygo.firebase.PriceValidator;
 import com.grocerygo.models.CartItem;
 import com.grocerygo.models.Address;
 import com.grocerygo.models.Order;
+import com.grocerygo.pricing.CartItemLines;
+import com.grocerygo.pricing.PriceBreakdown;
+import com.grocerygo.pricing.PricingEngine;
+import com.grocerygo.pricing.PricingPlan;
 import com.grocerygo.utils.CartManager;
+import com.grocerygo.utils.OrderOutbox;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class CheckoutActivity extends AppCompatActivity implements CartManager.CartUpdateListener {
     private static final String TAG = "CheckoutActivity";
@@ -45,7 +60,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
     private TextView tvItemCount, tvItemTotal, tvDeliveryFee, tvTaxes, tvDiscount, tvTotalAmount, tvBottomTotal;
     private RadioButton radioCashOnDelivery, radioCard, radioUPI;
     private TextInputEditText etInstructions;
-    private MaterialButton btnPlaceOrder, btnViewMore;
+    private MaterialButton btnPlaceOrder, btnViewMore, btnApplyCoupon;
     private FrameLayout loadingOverlay;
     private LinearLayout layoutDiscount;
 
@@ -55,6 +70,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
 
     private FirebaseFirestore db;
     private OrderRepository orderRepository;
+    private PriceValidator priceValidator;
     private FirebaseAuth firebaseAuth;
 
     private CheckoutCartAdapter checkoutCartAdapter;
@@ -63,6 +79,10 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
     private String productId, productName, productImage;
     private int quantity;
     private double productPrice, subtotal, deliveryFee, tax, totalAmount, couponDiscount;
+    private String productCategoryId;
+    private String couponCode; // normalized, null when no coupon is applied
+    private final PriceBreakdown breakdown = new PriceBreakdown();
+    private final CartItemLines pricedLines = new CartItemLines();
     private String selectedPaymentMethod = "Cash on Delivery";
     private String deliveryInstructions = "";
     private boolean isCartCheckout = false;
@@ -82,9 +102,16 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
             firebaseAuth = FirebaseAuth.getInstance();
             db = FirebaseFirestore.getInstance();
             orderRepository = new OrderRepository();
+            priceValidator = new PriceValidator();
 
             Log.d(TAG, "Firebase initialized");
 
+            // Re-price once the latest promotion rules are in (the built-in plan is used until then)
+            PricingEngine.getInstance().refresh().addOnSuccessListener(this, plan -> {
+                recomputeTotals();
+                updatePriceDisplay();
+            });
+
             // Initialize CartManager
             cartManager = CartManager.getInstance(this);
 
@@ -124,7 +151,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                 recyclerViewOrderItems.setAdapter(checkoutCartAdapter);
             }
             // Recompute totals
-            recomputeTotalsFromCart();
+            recomputeTotals();
             updatePriceDisplay();
         }
 
@@ -156,7 +183,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
 
                     // Update item count and totals
                     tvItemCount.setText(String.format(Locale.getDefault(), "%d items", cartItems.size()));
-                    recomputeTotalsFromCart();
+                    recomputeTotals();
                     updatePriceDisplay();
                 }
             } catch (Exception e) {
@@ -165,15 +192,16 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
         });
     }
 
-    private void recomputeTotalsFromCart() {
-        subtotal = 0;
-        if (cartItems != null) {
-            for (CartItem item : cartItems) {
-                subtotal += item.getProductPrice() * item.getQuantity();
-            }
-        }
-        tax = subtotal * 0.05;
-        totalAmount = subtotal + deliveryFee + tax - couponDiscount;
+    /**
+     * Price the current lines with the PricingPlan (no allocation, so it can run on every change)
+     */
+    private void recomputeTotals() {
+        PricingEngine.getInstance().getPlan().price(pricedLines.wrap(cartItems), couponCode, breakdown);
+        subtotal = breakdown.getSubtotal();
+        deliveryFee = breakdown.getDeliveryFee();
+        tax = breakdown.getTax();
+        couponDiscount = breakdown.getDiscount();
+        totalAmount = breakdown.getTotal();
     }
 
     private void getOrderDataFromIntent() {
@@ -182,34 +210,33 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
             isCartCheckout = intent.getBooleanExtra("is_cart_checkout", false);
 
             if (isCartCheckout) {
-                // Cart checkout - get cart totals
-                subtotal = intent.getDoubleExtra("cart_subtotal", 0.0);
-                deliveryFee = intent.getDoubleExtra("cart_delivery_fee", 40.0);
-                int itemCount = intent.getIntExtra("cart_item_count", 0);
-
-                // Get cart items from CartManager
+                // Cart checkout - get cart items from CartManager
                 cartItems = CartManager.getInstance(this).getCartItems();
-
-                // Calculate tax and total
-                couponDiscount = 0.0;
-                tax = subtotal * 0.05;
-                totalAmount = subtotal + deliveryFee + tax - couponDiscount;
+                recomputeTotals();
 
                 Log.d(TAG, "Cart Checkout - Subtotal: " + subtotal + ", Delivery: " + deliveryFee +
-                        ", Tax: " + tax + ", Total: " + totalAmount + ", Items: " + itemCount);
+                        ", Tax: " + tax + ", Total: " + totalAmount + ", Items: " + cartItems.size());
             } else {
                 // Single product checkout
                 productId = intent.getStringExtra("product_id");
                 productName = intent.getStringExtra("product_name");
                 productPrice = intent.getDoubleExtra("product_price", 0.0);
                 productImage = intent.getStringExtra("product_image");
+                productCategoryId = intent.getStringExtra("product_category_id");
                 quantity = intent.getIntExtra("quantity", 1);
 
                 Log.d(TAG, "Product Data - ID: " + productId + ", Name: " + productName +
                       ", Price: " + productPrice + ", Qty: " + quantity);
 
-                // Calculate prices
-                calculatePrices();
+                // Priced like a one-line cart
+                cartItems = new ArrayList<>();
+                if (productName != null) {
+                    int cappedQty = Math.min(quantity, CartManager.MAX_QUANTITY);
+                    CartItem singleItem = new CartItem(productId, productName, productImage, productPrice, "gm", cappedQty);
+                    singleItem.setCategoryId(productCategoryId);
+                    cartItems.add(singleItem);
+                }
+                recomputeTotals();
             }
 
             Log.d(TAG, "Final totals - Subtotal: " + subtotal + ", Total: " + totalAmount);
@@ -219,14 +246,6 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
         }
     }
 
-    private void calculatePrices() {
-        subtotal = productPrice * Math.min(quantity, CartManager.MAX_QUANTITY);
-        deliveryFee = subtotal > 500 ? 0 : 40.0;
-        couponDiscount = 0.0;
-        tax = subtotal * 0.05;
-        totalAmount = subtotal + deliveryFee - couponDiscount + tax;
-    }
-
     private void initViews() {
         try {
             toolbar = findViewById(R.id.toolbar);
@@ -241,6 +260,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
             tvTaxes = findViewById(R.id.tvTaxes);
             tvDiscount = findViewById(R.id.tvDiscount);
             layoutDiscount = findViewById(R.id.layoutDiscount);
+            btnApplyCoupon = findViewById(R.id.btnApplyCoupon);
             tvTotalAmount = findViewById(R.id.tvTotalAmount);
             tvBottomTotal = findViewById(R.id.tvBottomTotal);
             radioCashOnDelivery = findViewById(R.id.radioCashOnDelivery);
@@ -295,23 +315,10 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                     btnViewMore.setVisibility(View.GONE);
                 }
 
-                // Update subtotal from cart items
-                subtotal = 0;
-                for (CartItem item : cartItems) {
-                    subtotal += item.getProductPrice() * item.getQuantity();
-                }
-
-                // Recalculate totals
-                tax = subtotal * 0.05;
-                totalAmount = subtotal + deliveryFee + tax - couponDiscount;
+                recomputeTotals();
             } else {
-                // Single product checkout - create a single-item list
+                // Single product checkout - the one-line list built from the intent
                 if (productName != null) {
-                    int cappedQty = Math.min(quantity, CartManager.MAX_QUANTITY);
-                    CartItem singleItem = new CartItem(productId, productName, productImage, productPrice, "gm", cappedQty);
-                    cartItems = new ArrayList<>();
-                    cartItems.add(singleItem);
-
                     checkoutCartAdapter = new CheckoutCartAdapter(this, cartItems);
                     recyclerViewOrderItems.setAdapter(checkoutCartAdapter);
                     recyclerViewOrderItems.setVisibility(View.VISIBLE);
@@ -425,6 +432,17 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                 validateAndProceedToPayment();
             });
 
+            btnApplyCoupon.setOnClickListener(v -> {
+                if (couponCode != null) {
+                    couponCode = null;
+                    btnApplyCoupon.setText("Apply coupon");
+                    recomputeTotals();
+                    updatePriceDisplay();
+                } else {
+                    showCouponDialog();
+                }
+            });
+
             // Use the adapter's toggle functionality
             if (btnViewMore != null) {
                 btnViewMore.setOnClickListener(v -> {
@@ -441,6 +459,43 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
         }
     }
 
+    private void showCouponDialog() {
+        EditText input = new EditText(this);
+        input.setHint("Coupon code");
+        input.setSingleLine(true);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Apply Coupon")
+                .setView(input)
+                .setPositiveButton("Apply", (dialog, which) -> applyCoupon(input.getText().toString()))
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    private void applyCoupon(String enteredCode) {
+        String code = PricingPlan.normalizeCouponCode(enteredCode);
+        if (!PricingEngine.getInstance().getPlan().hasCoupon(code)) {
+            Toast.makeText(this, "Invalid coupon code", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        couponCode = code;
+        recomputeTotals();
+        if (breakdown.getCouponStatus() == PriceBreakdown.CouponStatus.MIN_SUBTOTAL_NOT_MET) {
+            Toast.makeText(this, String.format(Locale.getDefault(),
+                    "Add items worth ₹%.2f or more to use %s", breakdown.getCouponMinSubtotal(), code),
+                    Toast.LENGTH_LONG).show();
+            couponCode = null;
+            recomputeTotals();
+        } else {
+            btnApplyCoupon.setText("Remove " + code);
+            Toast.makeText(this, String.format(Locale.getDefault(),
+                    "%s applied: you save ₹%.2f", code, breakdown.getCouponDiscount()), Toast.LENGTH_SHORT).show();
+        }
+        updatePriceDisplay();
+    }
+
     private void updateViewMoreButtonText() {
         if (btnViewMore == null) return;
 
@@ -504,34 +559,128 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                 return;
             }
 
+            if (cartItems == null || cartItems.isEmpty()) {
+                Toast.makeText(this, "Nothing to order", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
             showLoading(true);
 
-            // Create order items
-            List<Order.OrderItem> items = new ArrayList<>();
+            // Prices in the cart can be stale - re-price every line from the server before writing
+            priceValidator.validate(cartItems, couponCode)
+                    .addOnSuccessListener(check -> {
+                        if (check.hasChanges()) {
+                            showLoading(false);
+                            applyPriceCheck(check);
+                            showPriceChangesDialog(currentUser, check);
+                            return;
+                        }
+                        submitOrder(currentUser, check);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error validating prices", e);
+                        if (e instanceof FirebaseFirestoreException && ((FirebaseFirestoreException) e).getCode()
+                                == FirebaseFirestoreException.Code.UNAVAILABLE) {
+                            submitOrderOffline(currentUser);
+                            return;
+                        }
+                        showLoading(false);
+                        Toast.makeText(this, "Couldn't confirm current prices. Check your connection and try again.",
+                                Toast.LENGTH_LONG).show();
+                    });
+        } catch (Exception e) {
+            showLoading(false);
+            Log.e(TAG, "Error in placeOrder", e);
+            Toast.makeText(this, "Error placing order: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Show the re-priced totals and move the cart to the current prices
+     */
+    private void applyPriceCheck(PriceCheck check) {
+        Map<String, Double> prices = new HashMap<>();
+        for (PriceCheck.Line line : check.getChangedLines()) {
+            if (line.getStatus() == PriceCheck.Line.Status.PRICE_CHANGED) {
+                prices.put(line.getItem().getProductId(), line.getCurrentPrice());
+            }
+        }
+        if (isCartCheckout) {
+            cartManager.updatePrices(prices);
+        } else if (prices.containsKey(productId)) {
+            productPrice = prices.get(productId);
+            cartItems.get(0).setProductPrice(productPrice);
+        }
 
-            if (isCartCheckout) {
-                // Cart checkout - convert cart items to order items
-                for (CartItem cartItem : cartItems) {
-                    Order.OrderItem orderItem = new Order.OrderItem(
-                            cartItem.getProductId(),
-                            cartItem.getProductName(),
-                            cartItem.getQuantity(),
-                            cartItem.getProductPrice(),
-                            cartItem.getProductImage()
-                    );
-                    items.add(orderItem);
-                }
+        subtotal = check.getSubtotal();
+        deliveryFee = check.getDeliveryFee();
+        tax = check.getTax();
+        couponDiscount = check.getDiscount();
+        totalAmount = check.getTotal();
+        if (checkoutCartAdapter != null) {
+            checkoutCartAdapter.notifyDataSetChanged();
+        }
+        updatePriceDisplay();
+    }
+
+    private void showPriceChangesDialog(FirebaseUser currentUser, PriceCheck check) {
+        StringBuilder message = new StringBuilder();
+        for (PriceCheck.Line line : check.getChangedLines()) {
+            String name = line.getItem().getProductName();
+            if (line.getStatus() == PriceCheck.Line.Status.UNAVAILABLE) {
+                message.append(String.format(Locale.getDefault(), "• %s is no longer available\n", name));
             } else {
-                // Single product checkout
-                Order.OrderItem item = new Order.OrderItem(
-                        productId,
-                        productName,
-                        quantity,
-                        productPrice,
-                        productImage
-                );
-                items.add(item);
+                message.append(String.format(Locale.getDefault(), "• %s: ₹%.2f → ₹%.2f\n",
+                        name, line.getCartPrice(), line.getCurrentPrice()));
             }
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Prices have changed");
+        if (check.hasUnavailable()) {
+            builder.setMessage(message + "\nPlease remove unavailable items from your cart to continue.");
+            builder.setPositiveButton("OK", (dialog, which) -> dialog.dismiss());
+        } else {
+            builder.setMessage(String.format(Locale.getDefault(), "%s\nNew total: ₹%.2f",
+                    message, check.getTotal()));
+            builder.setPositiveButton("Place Order", (dialog, which) -> {
+                dialog.dismiss();
+                showLoading(true);
+                submitOrder(currentUser, check);
+            });
+            builder.setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss());
+        }
+        builder.setCancelable(true);
+        builder.create().show();
+    }
+
+    /**
+     * Write the order at the validated prices and totals
+     */
+    private void submitOrder(FirebaseUser currentUser, PriceCheck check) {
+        submitOrder(currentUser, check.toOrderItems(), check.getTotal(), false);
+    }
+
+    /**
+     * Offline - queue the order at the prices shown. The placement transaction re-checks
+     * every price, so the order is rejected rather than written if one has changed by then.
+     */
+    private void submitOrderOffline(FirebaseUser currentUser) {
+        List<Order.OrderItem> items = new ArrayList<>(cartItems.size());
+        for (CartItem item : cartItems) {
+            items.add(new Order.OrderItem(item.getProductId(), item.getProductName(),
+                    item.getQuantity(), item.getProductPrice(), item.getProductImage()));
+        }
+        Toast.makeText(this, "You're offline - your order will be sent when you're back online",
+                Toast.LENGTH_LONG).show();
+        submitOrder(currentUser, items, totalAmount, true);
+    }
+
+    private void submitOrder(FirebaseUser currentUser, List<Order.OrderItem> items, double total,
+                             boolean queuedOffline) {
+        try {
+            totalAmount = total;
 
             // Get delivery address (make it final for lambda)
             String addressText = tvAddressDetails.getText().toString();
@@ -539,9 +688,9 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                     ? "123 Main Street, Apartment 4B\nNew York, NY 10001"
                     : addressText;
 
-            // Create order
+            // Create order, with its id assigned up front so a resend can't place it twice
             Order order = new Order(
-                    null, // Will be auto-generated
+                    orderRepository.newOrderId(),
                     currentUser.getUid(),
                     items,
                     totalAmount,
@@ -552,12 +701,14 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
             order.setStatus("pending");
             order.setPaid(selectedPaymentMethod.equals("UPI Payment") ||
                           selectedPaymentMethod.equals("Credit/Debit Card"));
+            // The server re-prices the order with the same coupon and rejects it if the total differs
+            order.setCouponCode(couponCode);
 
-            // Save order to Firebase
-            orderRepository.createOrder(order)
+            // Done once the order is saved on the device; the outbox places it in the background
+            OrderOutbox.getInstance(this).submit(order)
                     .addOnSuccessListener(orderId -> {
                         showLoading(false);
-                        Log.d(TAG, "Order created successfully: " + orderId);
+                        Log.d(TAG, "Order queued: " + orderId);
 
                         // Clear cart if this was a cart checkout
                         if (isCartCheckout) {
@@ -573,20 +724,21 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                         intent.putExtra("delivery_address", deliveryAddress);
                         intent.putExtra("item_count", items.size());
                         intent.putExtra("user_id", currentUser.getUid());
+                        intent.putExtra("queued_offline", queuedOffline);
 
                         startActivity(intent);
                         finish();
                     })
                     .addOnFailureListener(e -> {
                         showLoading(false);
-                        Log.e(TAG, "Error creating order", e);
+                        Log.e(TAG, "Error saving order", e);
                         Toast.makeText(this, "Failed to place order: " + e.getMessage(),
                                 Toast.LENGTH_LONG).show();
                     });
 
         } catch (Exception e) {
             showLoading(false);
-            Log.e(TAG, "Error in placeOrder", e);
+            Log.e(TAG, "Error in submitOrder", e);
             Toast.makeText(this, "Error placing order: " + e.getMessage(),
                     Toast.LENGTH_LONG).show();
         }
@@ -612,14 +764,10 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
             Log.d(TAG, "Loading default address for user: " + uid);
 
             // Query addresses collection for default address
-            db.collection("addresses")
-                    .whereEqualTo("userId", uid)
-                    .whereEqualTo("isDefault", true)
-                    .limit(1)
-                    .get()
+            FirebaseManager.getInstance().getDefaultAddress(uid)
                     .addOnSuccessListener(qds -> {
                         if (!qds.isEmpty()) {
-                            Address addr = qds.getDocuments().get(0).toObject(Address.class);
+                            Address addr = Codecs.decode(qds.getDocuments().get(0), AddressCodec.INSTANCE);
                             if (addr != null) {
                                 String formatted = addr.getFormattedAddress();
                                 if (tvAddressDetails != null) tvAddressDetails.setText(formatted);
@@ -634,8 +782,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
 
                         // Fallback to user document fields
                         Log.d(TAG, "No default address in addresses collection, falling back to users document");
-                        db.collection("users").document(uid)
-                                .get()
+                        FirebaseManager.getInstance().getUserDocument(uid)
                                 .addOnSuccessListener(doc -> {
                                     if (doc.exists()) {
                                         String addr = doc.getString("address");
@@ -673,8 +820,7 @@ public class CheckoutActivity extends AppCompatActivity implements CartManager.C
                     .addOnFailureListener(e -> {
                         Log.e(TAG, "Error querying addresses collection", e);
                         // Try the user document as final fallback
-                        db.collection("users").document(uid)
-                                .get()
+                        FirebaseManager.getInstance().getUserDocument(uid)
                                 .addOnSuccessListener(doc -> {
                                     if (doc.exists()) {
                                         String addr = doc.getString("address");
@@ -10,12 +10,14 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.StockShards;
 import com.grocerygo.utils.FirebaseDataPopulator;
 import com.grocerygo.utils.DeliveryPartnerPopulator;
+import com.grocerygo.utils.StockShardMigrator;
 
 public class DatabasePopulatorActivity extends AppCompatActivity {
 
-    private Button btnPopulateData, btnPopulateDeliveryPartners, btnClearDeliveryPartners;
+    private Button btnPopulateData, btnShardStock, btnPopulateDeliveryPartners, btnClearDeliveryPartners;
     private ProgressBar progressBar;
     private TextView tvStatus;
     private DeliveryPartnerPopulator deliveryPartnerPopulator;
@@ -32,6 +34,7 @@ public class DatabasePopulatorActivity extends AppCompatActivity {
 
     private void initViews() {
         btnPopulateData = findViewById(R.id.btnPopulateData);
+        btnShardStock = findViewById(R.id.btnShardStock);
         btnPopulateDeliveryPartners = findViewById(R.id.btnPopulateDeliveryPartners);
         btnClearDeliveryPartners = findViewById(R.id.btnClearDeliveryPartners);
         progressBar = findViewById(R.id.progressBar);
@@ -40,6 +43,7 @@ public class DatabasePopulatorActivity extends AppCompatActivity {
 
     private void setupClickListeners() {
         btnPopulateData.setOnClickListener(v -> populateDatabase());
+        btnShardStock.setOnClickListener(v -> shardProductStock());
         btnPopulateDeliveryPartners.setOnClickListener(v -> populateDeliveryPartners());
         btnClearDeliveryPartners.setOnClickListener(v -> clearDeliveryPartners());
     }
@@ -61,6 +65,26 @@ public class DatabasePopulatorActivity extends AppCompatActivity {
         });
     }
 
+    private void shardProductStock() {
+        btnShardStock.setEnabled(false);
+        progressBar.setVisibility(View.VISIBLE);
+        tvStatus.setText("Sharding product stock...\nPlease wait...");
+
+        new StockShardMigrator().migrateAll(StockShards.DEFAULT_SHARDS)
+                .addOnSuccessListener(migrated -> {
+                    progressBar.setVisibility(View.GONE);
+                    btnShardStock.setEnabled(true);
+                    tvStatus.setText("✓ Stock sharded for " + migrated + " products\n\n"
+                            + StockShards.DEFAULT_SHARDS + " counters each. Products already sharded were skipped.");
+                })
+                .addOnFailureListener(e -> {
+                    progressBar.setVisibility(View.GONE);
+                    btnShardStock.setEnabled(true);
+                    tvStatus.setText("✗ Failed to shard stock\n\nError: " + e.getMessage());
+                    Toast.makeText(this, "Failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+    }
+
     private void populateDeliveryPartners() {
         btnPopulateDeliveryPartners.setEnabled(false);
         progressBar.setVisibility(View.VISIBLE);
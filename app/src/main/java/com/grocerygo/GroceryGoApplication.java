@@ -6,6 +6,11 @@ import android.util.Log;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.appcheck.FirebaseAppCheck;
 import com.google.firebase.appcheck.playintegrity.PlayIntegrityAppCheckProviderFactory;
+import com.grocerygo.pricing.PricingEngine;
+import com.grocerygo.utils.CartManager;
+import com.grocerygo.utils.OrderFailureNotifier;
+import com.grocerygo.utils.OrderOutbox;
+import com.grocerygo.utils.OrderTransitionScheduler;
 
 public class GroceryGoApplication extends Application {
     private static final String TAG = "GroceryGoApplication";
@@ -29,6 +34,26 @@ public class GroceryGoApplication extends Application {
         } catch (Exception e) {
             Log.e(TAG, "Error initializing Firebase", e);
         }
+
+        // Start hydrating the saved cart in the background so the first screen doesn't wait for it
+        CartManager.getInstance(this);
+
+        // Resume timed order transitions (e.g. auto-delivery) scheduled before the app was last killed
+        OrderTransitionScheduler.getInstance(this);
+
+        // Resend orders checked out offline; put rejected ones back in the cart and notify the buyer
+        OrderOutbox.getInstance(this).addListener(new OrderFailureNotifier(this));
+
+        // Load promotion and tax rules so carts are priced with them from the first screen
+        PricingEngine.getInstance().refresh();
     }
-}
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // App went to the background (or is under memory pressure) and may be killed - persist the cart now
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            CartManager.flushPendingWrites();
+        }
+    }
+}
@@ -24,8 +24,11 @@ import com.google.firebase.auth.FirebaseUser;
 import com.grocerygo.adapters.CategoryAdapter;
 import com.grocerygo.adapters.ProductAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.AddressCodec;
+import com.grocerygo.codec.Codecs;
 import com.grocerygo.firebase.AuthRepository;
 import com.grocerygo.firebase.CategoryRepository;
+import com.grocerygo.firebase.FirebaseManager;
 import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Category;
 import com.grocerygo.models.Product;
@@ -116,6 +119,21 @@ public class HomeActivity extends AppCompatActivity implements CartManager.CartU
         runOnUiThread(this::updateCartBadge);
     }
 
+    @Override
+    public void onCartItemChanged(String productId, int oldQuantity, int newQuantity) {
+        // Rebind only the card showing this product
+        if (productAdapter != null) {
+            productAdapter.notifyCartQuantityChanged(productId);
+        }
+    }
+
+    @Override
+    public void onCartCleared() {
+        if (productAdapter != null) {
+            productAdapter.refreshCartState();
+        }
+    }
+
     private void updateCartBadge() {
         if (tvCartBadge != null && cartManager != null) {
             int itemCount = cartManager.getCartItemCount();
@@ -372,16 +390,12 @@ public class HomeActivity extends AppCompatActivity implements CartManager.CartU
         if (currentUser != null) {
             String userId = currentUser.getUid();
 
-            com.google.firebase.firestore.FirebaseFirestore.getInstance()
-                    .collection("addresses")
-                    .whereEqualTo("userId", userId)
-                    .whereEqualTo("isDefault", true)
-                    .limit(1)
-                    .get()
+            // Shares the query with DataPreloader if it is still running
+            FirebaseManager.getInstance().getDefaultAddress(userId)
                     .addOnSuccessListener(queryDocumentSnapshots -> {
                         if (!queryDocumentSnapshots.isEmpty()) {
                             Address mainAddress =
-                                    queryDocumentSnapshots.getDocuments().get(0).toObject(Address.class);
+                                    Codecs.decode(queryDocumentSnapshots.getDocuments().get(0), AddressCodec.INSTANCE);
                             if (mainAddress != null) {
                                 String displayAddress = safeString(mainAddress.getCity()) + ", " + safeString(mainAddress.getState());
                                 tvLocation.setText(displayAddress);
@@ -460,15 +474,15 @@ public class HomeActivity extends AppCompatActivity implements CartManager.CartU
     }
 
     private void loadAllProductsFallback() {
-        productRepository.getAllProducts()
-                .addOnSuccessListener(productList -> {
-                    if (productList != null && !productList.isEmpty()) {
-                        int limit = Math.min(10, productList.size());
-                        List<Product> limitedList = productList.subList(0, limit);
+        // Only the first page is shown, so don't read the rest of the catalog
+        productRepository.getProductsPage(10, null)
+                .addOnSuccessListener(page -> {
+                    List<Product> productList = page.getItems();
+                    if (!productList.isEmpty()) {
                         featuredProducts.clear();
-                        featuredProducts.addAll(limitedList);
-                        productAdapter.updateList(limitedList);
-                        Log.d(TAG, "Loaded " + limitedList.size() + " products as fallback");
+                        featuredProducts.addAll(productList);
+                        productAdapter.updateList(productList);
+                        Log.d(TAG, "Loaded " + productList.size() + " products as fallback");
                     } else {
                         Log.d(TAG, "No products found in database");
                     }
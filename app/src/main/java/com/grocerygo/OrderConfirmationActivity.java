@@ -1,6 +1,9 @@
 package com.grocerygo;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
@@ -11,17 +14,25 @@ import android.widget.Toast;
 import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.core.app.ActivityCompat;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.AddressCodec;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.firebase.FirebaseManager;
 import com.grocerygo.models.Address;
+import com.grocerygo.utils.OrderFailureNotifier;
 
 import java.util.Locale;
 
 public class OrderConfirmationActivity extends AppCompatActivity {
     private static final String TAG = "OrderConfirmation";
+    private static final int REQUEST_NOTIFICATION_PERMISSION = 1001;
+    private static final String PREFS_NOTIFICATIONS = "NotificationPrefs";
+    private static final String KEY_ORDER_PERMISSION_ASKED = "order_notification_permission_asked";
 
     private TextView tvOrderId, tvDeliveryTime, tvOrderAmount, tvPaymentMethod;
     private TextView tvDeliveryAddress, tvOrderItemsSummary;
@@ -34,6 +45,7 @@ public class OrderConfirmationActivity extends AppCompatActivity {
     private String deliveryAddress;
     private int itemCount;
     private String userId;
+    private boolean queuedOffline;
     private FirebaseFirestore db;
 
     @Override
@@ -61,6 +73,10 @@ public class OrderConfirmationActivity extends AppCompatActivity {
             setupOrderDetails();
             setupClickListeners();
 
+            if (queuedOffline) {
+                requestNotificationPermissionOnce();
+            }
+
             Log.d(TAG, "OrderConfirmationActivity initialized successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreate", e);
@@ -79,6 +95,7 @@ public class OrderConfirmationActivity extends AppCompatActivity {
             deliveryAddress = intent.getStringExtra("delivery_address");
             itemCount = intent.getIntExtra("item_count", 0);
             userId = intent.getStringExtra("user_id");
+            queuedOffline = intent.getBooleanExtra("queued_offline", false);
 
             Log.d(TAG, "Order data - ID: " + orderId + ", Amount: " + totalAmount +
                     ", Payment: " + paymentMethod + ", Address: " + deliveryAddress +
@@ -93,6 +110,26 @@ public class OrderConfirmationActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * An order queued offline is placed later, and a rejection then can only reach the buyer
+     * as a notification (see OrderFailureNotifier). Asks for the permission the first time
+     * that happens; declining is respected from then on.
+     */
+    private void requestNotificationPermissionOnce() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU
+                || OrderFailureNotifier.canPostNotifications(this)) {
+            return;
+        }
+        SharedPreferences preferences = getSharedPreferences(PREFS_NOTIFICATIONS, MODE_PRIVATE);
+        if (preferences.getBoolean(KEY_ORDER_PERMISSION_ASKED, false)) {
+            return;
+        }
+        preferences.edit().putBoolean(KEY_ORDER_PERMISSION_ASKED, true).apply();
+        ActivityCompat.requestPermissions(this,
+                new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                REQUEST_NOTIFICATION_PERMISSION);
+    }
+
     private void initViews() {
         try {
             tvOrderId = findViewById(R.id.tvOrderId);
@@ -127,14 +164,10 @@ public class OrderConfirmationActivity extends AppCompatActivity {
         Log.d(TAG, "Attempting to load default address from 'addresses' collection for user: " + effectiveUserId);
 
         // First try to fetch the default address from the 'addresses' collection (preferred)
-        db.collection("addresses")
-                .whereEqualTo("userId", effectiveUserId)
-                .whereEqualTo("isDefault", true)
-                .limit(1)
-                .get()
+        FirebaseManager.getInstance().getDefaultAddress(effectiveUserId)
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     if (!queryDocumentSnapshots.isEmpty()) {
-                        Address mainAddress = queryDocumentSnapshots.getDocuments().get(0).toObject(Address.class);
+                        Address mainAddress = Codecs.decode(queryDocumentSnapshots.getDocuments().get(0), AddressCodec.INSTANCE);
                         if (mainAddress != null) {
                             String formatted = mainAddress.getFormattedAddress();
                             deliveryAddress = formatted;
@@ -157,8 +190,7 @@ public class OrderConfirmationActivity extends AppCompatActivity {
 
     private void loadAddressFromUserDocument(String effectiveUserId) {
         // Attempt to read address fields from users/<userId> (legacy/fallback)
-        db.collection("users").document(effectiveUserId)
-                .get()
+        FirebaseManager.getInstance().getUserDocument(effectiveUserId)
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         String addr = documentSnapshot.getString("address");
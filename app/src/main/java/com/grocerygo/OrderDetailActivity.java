@@ -16,6 +16,8 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.grocerygo.adapters.OrderItemAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.OrderCodec;
 import com.grocerygo.models.Order;
 
 import java.text.SimpleDateFormat;
@@ -88,7 +90,7 @@ public class OrderDetailActivity extends AppCompatActivity {
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
-                        Order order = documentSnapshot.toObject(Order.class);
+                        Order order = Codecs.decode(documentSnapshot, OrderCodec.INSTANCE);
                         if (order != null) {
                             displayOrderDetails(order);
                         }
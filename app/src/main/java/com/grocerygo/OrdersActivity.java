@@ -11,28 +11,33 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Source;
 import com.grocerygo.adapters.OrderAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.OrderRepository;
+import com.grocerygo.firebase.Page;
 import com.grocerygo.models.Order;
+import com.grocerygo.models.OrderStatus;
+import com.grocerygo.utils.OrderIndex;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
 
 public class OrdersActivity extends AppCompatActivity {
 
     private RecyclerView rvOrders;
     private OrderAdapter orderAdapter;
-    private List<Order> orderList;
-    private List<Order> filteredOrderList;
+    private final OrderIndex orderIndex = new OrderIndex();
 
     private TextView tvTotalOrders, tvPendingOrders, tvCompletedOrders;
     private TabLayout tabLayout;
@@ -41,9 +46,18 @@ public class OrdersActivity extends AppCompatActivity {
     private ImageView btnBack, btnFilter;
     private CardView btnStartShopping;
 
-    private FirebaseFirestore db;
+    private NestedScrollView nsvOrders;
+
     private FirebaseAuth auth;
-    private String currentFilter = "all";
+    private OrderRepository orderRepository;
+    private OrderStatus currentFilter = null; // null shows every order
+
+    private String userId;
+    private DocumentSnapshot nextCursor;
+    private boolean hasMorePages = false;
+    private boolean isLoadingPage = false;
+    private boolean firstPageFromServer = false;
+    private long[] serverCounts; // total, pending + confirmed, delivered
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,18 +82,22 @@ public class OrdersActivity extends AppCompatActivity {
         btnBack = findViewById(R.id.btnBack);
         btnFilter = findViewById(R.id.btnFilter);
         btnStartShopping = findViewById(R.id.btnStartShopping);
+        nsvOrders = findViewById(R.id.nsvOrders);
 
-        db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
-        orderList = new ArrayList<>();
-        filteredOrderList = new ArrayList<>();
+        orderRepository = new OrderRepository();
     }
 
     private void setupRecyclerView() {
-        orderAdapter = new OrderAdapter(this, filteredOrderList);
+        orderAdapter = new OrderAdapter(this, orderIndex.getOrders());
         rvOrders.setLayoutManager(new LinearLayoutManager(this));
         rvOrders.setAdapter(orderAdapter);
         rvOrders.setNestedScrollingEnabled(false);
+
+        nsvOrders.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener)
+                (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+                    if (scrollY > oldScrollY) checkLoadMore();
+                });
     }
 
     private void setupTabs() {
@@ -89,19 +107,19 @@ public class OrdersActivity extends AppCompatActivity {
                 int position = tab.getPosition();
                 switch (position) {
                     case 0:
-                        currentFilter = "all";
+                        currentFilter = null;
                         break;
                     case 1:
-                        currentFilter = "pending";
+                        currentFilter = OrderStatus.PENDING;
                         break;
                     case 2:
-                        currentFilter = "confirmed";
+                        currentFilter = OrderStatus.CONFIRMED;
                         break;
                     case 3:
-                        currentFilter = "delivered";
+                        currentFilter = OrderStatus.DELIVERED;
                         break;
                     case 4:
-                        currentFilter = "cancelled";
+                        currentFilter = OrderStatus.CANCELLED;
                         break;
                 }
                 filterOrders();
@@ -138,33 +156,29 @@ public class OrdersActivity extends AppCompatActivity {
             return;
         }
 
+        userId = currentUser.getUid();
         showLoading(true);
+        isLoadingPage = true;
 
-        // Query orders without orderBy to avoid index requirement
-        // We'll sort locally after fetching
-        db.collection("orders")
-                .whereEqualTo("userId", currentUser.getUid())
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    orderList.clear();
-
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Order order = document.toObject(Order.class);
-                        orderList.add(order);
-                    }
-
-                    // Sort orders by date locally (newest first)
-                    orderList.sort((o1, o2) -> {
-                        if (o1.getOrderDate() == null) return 1;
-                        if (o2.getOrderDate() == null) return -1;
-                        return o2.getOrderDate().compareTo(o1.getOrderDate());
-                    });
-
+        // Paint the first page from the on-device cache straight away, then replace it with the server's
+        orderRepository.getUserOrdersPage(userId, OrderRepository.DEFAULT_PAGE_SIZE, null, Source.CACHE)
+                .addOnSuccessListener(page -> {
+                    if (firstPageFromServer || page.getItems().isEmpty()) return;
+                    orderIndex.putAll(page.getItems());
                     updateStats();
                     filterOrders();
                     showLoading(false);
+                });
+
+        orderRepository.getUserOrdersPage(userId, OrderRepository.DEFAULT_PAGE_SIZE, null, Source.DEFAULT)
+                .addOnSuccessListener(page -> {
+                    firstPageFromServer = true;
+                    orderIndex.clear();
+                    onPageLoaded(page);
+                    showLoading(false);
                 })
                 .addOnFailureListener(e -> {
+                    isLoadingPage = false;
                     showLoading(false);
                     Toast.makeText(this, "Failed to load orders: " + e.getMessage(),
                             Toast.LENGTH_LONG).show();
@@ -172,42 +186,84 @@ public class OrdersActivity extends AppCompatActivity {
                     android.util.Log.e("OrdersActivity", "Error loading orders", e);
                     updateEmptyState();
                 });
+
+        loadOrderCounts();
     }
 
-    private void filterOrders() {
-        filteredOrderList.clear();
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMorePages || nextCursor == null) return;
+        isLoadingPage = true;
 
-        if (currentFilter.equals("all")) {
-            filteredOrderList.addAll(orderList);
-        } else {
-            for (Order order : orderList) {
-                if (order.getStatus().equalsIgnoreCase(currentFilter)) {
-                    filteredOrderList.add(order);
-                }
-            }
+        orderRepository.getUserOrdersPage(userId, OrderRepository.DEFAULT_PAGE_SIZE, nextCursor, Source.DEFAULT)
+                .addOnSuccessListener(this::onPageLoaded)
+                .addOnFailureListener(e -> {
+                    isLoadingPage = false;
+                    android.util.Log.e("OrdersActivity", "Error loading more orders", e);
+                });
+    }
+
+    private void onPageLoaded(Page<Order> page) {
+        orderIndex.putAll(page.getItems());
+        nextCursor = page.getCursor();
+        hasMorePages = page.hasMore();
+        isLoadingPage = false;
+
+        updateStats();
+        filterOrders();
+        // A short page may not fill the screen, so no scroll would ever ask for the next one
+        nsvOrders.post(this::checkLoadMore);
+    }
+
+    /**
+     * The list is laid out inside the scroll view, so page on the scroll view's position
+     */
+    private void checkLoadMore() {
+        View content = nsvOrders.getChildAt(0);
+        if (content == null) return;
+        int remaining = content.getBottom() - (nsvOrders.getHeight() + nsvOrders.getScrollY());
+        if (remaining <= nsvOrders.getHeight()) {
+            loadNextPage();
         }
+    }
+
+    /**
+     * Totals come from server-side counts, so they cover every order and not just the loaded pages
+     */
+    private void loadOrderCounts() {
+        Task<Long> total = orderRepository.getUserOrderCount(userId, Collections.emptyList());
+        Task<Long> pending = orderRepository.getUserOrderCount(userId,
+                Arrays.asList(OrderStatus.PENDING.getValue(), OrderStatus.CONFIRMED.getValue()));
+        Task<Long> delivered = orderRepository.getUserOrderCount(userId,
+                Collections.singletonList(OrderStatus.DELIVERED.getValue()));
+
+        Tasks.whenAllSuccess(total, pending, delivered)
+                .addOnSuccessListener(results -> {
+                    serverCounts = new long[] {(Long) results.get(0), (Long) results.get(1), (Long) results.get(2)};
+                    updateStats();
+                })
+                .addOnFailureListener(e ->
+                        android.util.Log.e("OrdersActivity", "Error counting orders", e));
+    }
 
-        orderAdapter.notifyDataSetChanged();
+    private void filterOrders() {
+        orderAdapter.setOrders(currentFilter == null ? orderIndex.getOrders() : orderIndex.getOrders(currentFilter));
         updateEmptyState();
     }
 
     private void updateStats() {
-        int totalOrders = orderList.size();
-        int pendingOrders = 0;
-        int completedOrders = 0;
-
-        for (Order order : orderList) {
-            String status = order.getStatus().toLowerCase();
-            if (status.equals("pending") || status.equals("confirmed")) {
-                pendingOrders++;
-            } else if (status.equals("delivered")) {
-                completedOrders++;
-            }
+        if (serverCounts != null) {
+            tvTotalOrders.setText(String.valueOf(serverCounts[0]));
+            tvPendingOrders.setText(String.valueOf(serverCounts[1]));
+            tvCompletedOrders.setText(String.valueOf(serverCounts[2]));
+            return;
         }
 
-        tvTotalOrders.setText(String.valueOf(totalOrders));
+        // Until the counts arrive, show what the loaded pages hold
+        int pendingOrders = orderIndex.getCount(OrderStatus.PENDING) + orderIndex.getCount(OrderStatus.CONFIRMED);
+
+        tvTotalOrders.setText(String.valueOf(orderIndex.getCount()));
         tvPendingOrders.setText(String.valueOf(pendingOrders));
-        tvCompletedOrders.setText(String.valueOf(completedOrders));
+        tvCompletedOrders.setText(String.valueOf(orderIndex.getCount(OrderStatus.DELIVERED)));
     }
 
     private void showLoading(boolean show) {
@@ -215,7 +271,8 @@ public class OrdersActivity extends AppCompatActivity {
     }
 
     private void updateEmptyState() {
-        if (filteredOrderList.isEmpty()) {
+        int shown = currentFilter == null ? orderIndex.getCount() : orderIndex.getCount(currentFilter);
+        if (shown == 0) {
             llEmptyState.setVisibility(View.VISIBLE);
             rvOrders.setVisibility(View.GONE);
         } else {
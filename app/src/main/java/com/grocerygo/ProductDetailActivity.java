@@ -2,6 +2,7 @@ package com.grocerygo;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -43,9 +44,10 @@ public class ProductDetailActivity extends AppCompatActivity
     private ProductAdapter relatedProductsAdapter;
     private List<Product> relatedProducts = new ArrayList<>();
 
-    private String productId, productName, productImage, productDescription, productUnit;
+    private String productId, productName, productImage, productDescription, productUnit, productCategoryId;
     private double productPrice, productRating;
     private int quantity = 1;
+    private long stockQuantity = -1; // Units in stock, -1 until loaded
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,6 +76,7 @@ public class ProductDetailActivity extends AppCompatActivity
         // Setup UI
         setupProductDetails();
         setupQuantityControls();
+        loadStockQuantity();
         setupRelatedProducts();
         setupClickListeners();
 
@@ -104,6 +107,7 @@ public class ProductDetailActivity extends AppCompatActivity
                         productUnit != null ? productUnit : "KG",
                         cappedQty
                 );
+                cartItem.setCategoryId(productCategoryId);
                 cartManager.addToCart(cartItem);
             } else {
                 // already present, update to new quantity
@@ -121,6 +125,7 @@ public class ProductDetailActivity extends AppCompatActivity
         productImage = intent.getStringExtra("product_image");
         productDescription = intent.getStringExtra("product_description");
         productUnit = intent.getStringExtra("product_unit");
+        productCategoryId = intent.getStringExtra("product_category_id");
         productRating = intent.getDoubleExtra("product_rating", 4.0);
 
         // Validate required data
@@ -253,6 +258,11 @@ public class ProductDetailActivity extends AppCompatActivity
 
     private void setupQuantityControls() {
         btnIncrease.setOnClickListener(v -> {
+            if (stockQuantity >= 0 && quantity >= stockQuantity) {
+                Toast.makeText(this, stockQuantity > 0 ? "Only " + stockQuantity + " left in stock"
+                        : "Out of stock", Toast.LENGTH_SHORT).show();
+                return;
+            }
             if (quantity < CartManager.MAX_QUANTITY) {
                 quantity++;
                 updateQuantityDisplay();
@@ -278,6 +288,15 @@ public class ProductDetailActivity extends AppCompatActivity
         });
     }
 
+    /**
+     * Units in stock (summed across shards for sharded products), to cap the quantity picked
+     */
+    private void loadStockQuantity() {
+        productRepository.getStockQuantity(productId)
+                .addOnSuccessListener(this, units -> stockQuantity = units)
+                .addOnFailureListener(this, e -> Log.w(TAG, "Error loading stock for " + productId, e));
+    }
+
     private void updateQuantityDisplay() {
         tvQuantity.setText(String.valueOf(quantity));
         updateCartQuantityBadge();
@@ -365,6 +384,7 @@ public class ProductDetailActivity extends AppCompatActivity
             intent.putExtra("product_name", productName);
             intent.putExtra("product_price", productPrice);
             intent.putExtra("product_image", productImage);
+            intent.putExtra("product_category_id", productCategoryId);
             intent.putExtra("quantity", quantity);
             intent.putExtra("total_amount", productPrice * quantity);
             startActivity(intent);
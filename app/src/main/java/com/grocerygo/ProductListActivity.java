@@ -17,19 +17,25 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.Task;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.grocerygo.adapters.ProductAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.Page;
 import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Product;
+import com.grocerygo.search.ProductSearchIndex;
+import com.grocerygo.search.SearchPipeline;
 import com.grocerygo.utils.CartManager;
+import com.grocerygo.utils.PaginationScrollListener;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class ProductListActivity extends AppCompatActivity implements CartManager.CartUpdateListener {
     private static final String TAG = "ProductListActivity";
+    private static final int PAGE_SIZE = ProductRepository.DEFAULT_PAGE_SIZE;
 
     private ImageView btnBack, btnCart;
     private TextView tvCartBadge;
@@ -45,6 +51,15 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
     private CartManager cartManager;
     private List<Product> allProducts = new ArrayList<>();
     private List<Product> filteredProducts = new ArrayList<>();
+    private SearchPipeline searchPipeline;
+    private PaginationScrollListener paginationListener;
+
+    // Paging state - allProducts holds every page loaded so far
+    private DocumentSnapshot pageCursor = null;
+    private boolean hasMorePages = true;
+    private boolean isLoadingPage = false;
+    private String currentQuery = "";
+    private int indexedProductCount = -1;
 
     private String categoryId = null;
     private String categoryName = null;
@@ -57,6 +72,7 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
         // Initialize repository
         productRepository = new ProductRepository();
         cartManager = CartManager.getInstance(this);
+        searchPipeline = new SearchPipeline(this::onSearchResults);
 
         // Get intent extras
         getIntentData();
@@ -106,6 +122,24 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
         GridLayoutManager gridLayoutManager = new GridLayoutManager(this, 2);
         rvProducts.setLayoutManager(gridLayoutManager);
         rvProducts.setAdapter(productAdapter);
+
+        paginationListener = new PaginationScrollListener(gridLayoutManager) {
+            @Override
+            protected boolean isLoading() {
+                return isLoadingPage;
+            }
+
+            @Override
+            protected boolean hasMorePages() {
+                return hasMorePages;
+            }
+
+            @Override
+            protected void loadNextPage() {
+                ProductListActivity.this.loadNextPage();
+            }
+        };
+        rvProducts.addOnScrollListener(paginationListener);
     }
 
     private void setupSearchFunctionality() {
@@ -172,73 +206,88 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
     private void loadProducts() {
         showLoading(true);
 
-        // Load products based on whether we have a category filter
+        allProducts.clear();
+        indexedProductCount = -1;
+        pageCursor = null;
+        hasMorePages = true;
+        loadNextPage();
+    }
+
+    /**
+     * Fetch the page after pageCursor, filtered by category if we have one
+     */
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMorePages) return;
+        isLoadingPage = true;
+
+        Task<Page<Product>> pageTask;
         if (categoryId != null && !categoryId.isEmpty()) {
-            loadProductsByCategory();
+            pageTask = productRepository.getProductsByCategoryIdPage(categoryId, PAGE_SIZE, pageCursor);
         } else {
-            loadAllProducts();
+            pageTask = productRepository.getProductsPage(PAGE_SIZE, pageCursor);
         }
-    }
 
-    private void loadAllProducts() {
-        productRepository.getAllProducts()
-                .addOnSuccessListener(products -> {
-                    showLoading(false);
-                    allProducts.clear();
-                    allProducts.addAll(products);
-                    filteredProducts.clear();
-                    filteredProducts.addAll(products);
-                    productAdapter.notifyDataSetChanged();
-                    updateProductCount();
-                    updateEmptyState();
-                    Log.d(TAG, "Loaded " + products.size() + " products");
-                })
+        pageTask.addOnSuccessListener(this::onPageLoaded)
                 .addOnFailureListener(e -> {
+                    isLoadingPage = false;
                     showLoading(false);
-                    Log.e(TAG, "Error loading products", e);
+                    Log.e(TAG, "Error loading products" + (categoryName != null ? " for category " + categoryName : ""), e);
                     Toast.makeText(this, "Failed to load products", Toast.LENGTH_SHORT).show();
                     updateEmptyState();
                 });
     }
 
-    private void loadProductsByCategory() {
-        productRepository.getProductsByCategoryId(categoryId)
-                .addOnSuccessListener(products -> {
-                    showLoading(false);
-                    allProducts.clear();
-                    allProducts.addAll(products);
-                    filteredProducts.clear();
-                    filteredProducts.addAll(products);
-                    productAdapter.notifyDataSetChanged();
-                    updateProductCount();
-                    updateEmptyState();
-                    Log.d(TAG, "Loaded " + products.size() + " products for category " + categoryName);
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Log.e(TAG, "Error loading products for category", e);
-                    Toast.makeText(this, "Failed to load products", Toast.LENGTH_SHORT).show();
-                    updateEmptyState();
-                });
+    private void onPageLoaded(Page<Product> page) {
+        boolean firstPage = pageCursor == null;
+        isLoadingPage = false;
+        if (firstPage) {
+            showLoading(false);
+        }
+
+        allProducts.addAll(page.getItems());
+        pageCursor = page.getCursor();
+        hasMorePages = page.hasMore();
+        Log.d(TAG, "Loaded page of " + page.getItems().size() + " products (" + allProducts.size()
+                + " total, more: " + hasMorePages + ")");
+
+        if (currentQuery.isEmpty()) {
+            onSearchResults(currentQuery, allProducts);
+        } else {
+            // Search matches against every product, so keep pulling pages while a query is active
+            buildSearchIndex();
+            searchPipeline.submitNow(currentQuery);
+            loadNextPage();
+        }
     }
 
-    private void filterProducts(String query) {
-        filteredProducts.clear();
+    private void buildSearchIndex() {
+        // Built only while searching, and only when new pages arrived since the last build
+        if (indexedProductCount == allProducts.size()) return;
+        indexedProductCount = allProducts.size();
+        // Only name and description are searchable on this screen
+        searchPipeline.setCatalog(allProducts,
+                ProductSearchIndex.FIELD_NAME | ProductSearchIndex.FIELD_DESCRIPTION);
+    }
 
-        if (query.isEmpty()) {
-            filteredProducts.addAll(allProducts);
+    private void filterProducts(String query) {
+        currentQuery = query.trim();
+        if (currentQuery.isEmpty()) {
+            // No filter - show the full list immediately
+            searchPipeline.cancel();
+            onSearchResults(query, allProducts);
         } else {
-            String lowerCaseQuery = query.toLowerCase(Locale.getDefault());
-            for (Product product : allProducts) {
-                if (product.getName().toLowerCase(Locale.getDefault()).contains(lowerCaseQuery) ||
-                    (product.getDescription() != null &&
-                     product.getDescription().toLowerCase(Locale.getDefault()).contains(lowerCaseQuery))) {
-                    filteredProducts.add(product);
-                }
-            }
+            buildSearchIndex();
+            searchPipeline.submit(query);
+            loadNextPage();
         }
+    }
+
+    private void onSearchResults(String query, List<Product> results) {
+        filteredProducts.clear();
+        filteredProducts.addAll(results);
 
-        productAdapter.notifyDataSetChanged();
+        // Once the rows are laid out, fetch the next page if the list doesn't reach the prefetch distance
+        productAdapter.updateList(filteredProducts, () -> rvProducts.post(paginationListener::checkPrefetch));
         updateProductCount();
         updateEmptyState();
     }
@@ -246,14 +295,16 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
     private void updateProductCount() {
         if (tvProductCount != null) {
             int count = filteredProducts.size();
-            String text = count + (count == 1 ? " Product" : " Products");
+            // More pages on the server - the count is a lower bound
+            String text = count + (hasMorePages ? "+" : "") + (count == 1 && !hasMorePages ? " Product" : " Products");
             tvProductCount.setText(text);
         }
     }
 
     private void updateEmptyState() {
         if (llEmptyState != null && rvProducts != null) {
-            if (filteredProducts.isEmpty()) {
+            // A search with pages still loading may find matches in them
+            if (filteredProducts.isEmpty() && !(hasMorePages && !currentQuery.isEmpty())) {
                 llEmptyState.setVisibility(View.VISIBLE);
                 rvProducts.setVisibility(View.GONE);
             } else {
@@ -280,7 +331,7 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
         updateCartBadge();
         // Refresh the adapter in case cart state changed
         if (productAdapter != null) {
-            productAdapter.notifyDataSetChanged();
+            productAdapter.refreshCartAndWishlistState();
         }
     }
 
@@ -291,11 +342,34 @@ public class ProductListActivity extends AppCompatActivity implements CartManage
         cartManager.removeCartUpdateListener(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searchPipeline != null) {
+            searchPipeline.release();
+        }
+    }
+
     @Override
     public void onCartUpdated(int itemCount) {
         runOnUiThread(this::updateCartBadge);
     }
 
+    @Override
+    public void onCartItemChanged(String productId, int oldQuantity, int newQuantity) {
+        // Rebind only the card showing this product
+        if (productAdapter != null) {
+            productAdapter.notifyCartQuantityChanged(productId);
+        }
+    }
+
+    @Override
+    public void onCartCleared() {
+        if (productAdapter != null) {
+            productAdapter.refreshCartState();
+        }
+    }
+
     private void updateCartBadge() {
         if (tvCartBadge != null && cartManager != null) {
             int itemCount = cartManager.getCartItemCount();
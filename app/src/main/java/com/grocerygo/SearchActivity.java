@@ -16,18 +16,23 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.grocerygo.adapters.ProductAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.Page;
 import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Product;
+import com.grocerygo.search.ProductSearchIndex;
+import com.grocerygo.search.SearchPipeline;
 import com.grocerygo.utils.CartManager;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class SearchActivity extends AppCompatActivity implements CartManager.CartUpdateListener {
     private static final String TAG = "SearchActivity";
+    // Larger than the browsing page size: every page has to arrive before a search is complete
+    private static final int SEARCH_PAGE_SIZE = 100;
 
     private ImageView btnBack, btnClearSearch;
     private EditText etSearch;
@@ -42,7 +47,9 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
     private ProductRepository productRepository;
     private List<Product> allProducts = new ArrayList<>();
     private List<Product> searchResults = new ArrayList<>();
+    private SearchPipeline searchPipeline;
     private boolean isProductsLoaded = false;
+    private boolean isCatalogComplete = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,6 +59,7 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
         // Initialize repository
         productRepository = new ProductRepository();
         cartManager = CartManager.getInstance(this);
+        searchPipeline = new SearchPipeline(this::onSearchResults);
 
         // Initialize views
         initViews();
@@ -145,80 +153,83 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
     private void loadProducts() {
         showLoading(true);
         isProductsLoaded = false;
+        isCatalogComplete = false;
+        allProducts.clear();
 
-        // Load ALL products from database, not just featured ones
-        productRepository.getAllProducts()
-                .addOnSuccessListener(productList -> {
-                    showLoading(false);
-
-                    if (productList != null && !productList.isEmpty()) {
-                        allProducts.clear();
-                        allProducts.addAll(productList);
-                        isProductsLoaded = true;
-                        Log.d(TAG, "Loaded " + productList.size() + " products for search");
-
-                        // If user has already typed something, perform search
-                        if (etSearch != null && !etSearch.getText().toString().trim().isEmpty()) {
-                            performSearch(etSearch.getText().toString().trim());
-                        }
-                    } else {
-                        Log.w(TAG, "No products found in database");
-                        Toast.makeText(this, "No products available", Toast.LENGTH_SHORT).show();
-                    }
+        // Stream the catalog in pages so the first results show before the whole collection arrives
+        loadPage(null);
+    }
 
-                    updateEmptyState();
-                })
+    private void loadPage(DocumentSnapshot cursor) {
+        productRepository.getProductsPage(SEARCH_PAGE_SIZE, cursor)
+                .addOnSuccessListener(this::onPageLoaded)
                 .addOnFailureListener(e -> {
                     showLoading(false);
-                    isProductsLoaded = false;
                     Log.e(TAG, "Error loading products", e);
-                    Toast.makeText(this, "Failed to load products. Please check your connection.", Toast.LENGTH_SHORT).show();
+                    if (!isProductsLoaded) {
+                        Toast.makeText(this, "Failed to load products. Please check your connection.", Toast.LENGTH_SHORT).show();
+                    }
+                    // Search what we have rather than waiting forever on a missing page
+                    isCatalogComplete = true;
                     updateEmptyState();
                 });
     }
 
-    private void performSearch(String query) {
-        searchResults.clear();
+    private void onPageLoaded(Page<Product> page) {
+        if (isFinishing() || isDestroyed()) return;
+        showLoading(false);
+
+        allProducts.addAll(page.getItems());
+        isCatalogComplete = !page.hasMore();
+        if (!allProducts.isEmpty()) {
+            // Tokenize the catalog off the main thread so keystrokes only hit the index
+            searchPipeline.setCatalog(allProducts, ProductSearchIndex.FIELDS_ALL);
+            isProductsLoaded = true;
+            Log.d(TAG, "Loaded " + allProducts.size() + " products for search"
+                    + (isCatalogComplete ? "" : ", more to come"));
+
+            // If user has already typed something, search right away (again, now with more products)
+            if (etSearch != null && !etSearch.getText().toString().trim().isEmpty()) {
+                searchPipeline.submitNow(etSearch.getText().toString().trim());
+            }
+        } else if (isCatalogComplete) {
+            Log.w(TAG, "No products found in database");
+            Toast.makeText(this, "No products available", Toast.LENGTH_SHORT).show();
+        }
 
+        if (page.hasMore()) {
+            loadPage(page.getCursor());
+        }
+        updateEmptyState();
+    }
+
+    private void performSearch(String query) {
         if (!isProductsLoaded) {
             // Products not loaded yet, wait
             Log.d(TAG, "Products not loaded yet, skipping search");
+            searchResults.clear();
+            productAdapter.updateList(searchResults);
             updateEmptyState();
             return;
         }
 
         if (query.isEmpty()) {
-            // Show empty state with hint when no query
+            // Show empty state with hint when no query - nothing to match, so skip the pipeline
             Log.d(TAG, "Empty query, showing empty state");
+            searchPipeline.cancel();
+            onSearchResults(query, new ArrayList<>());
         } else {
-            // Filter products by query (case-insensitive, null-safe)
-            String lowerQuery = query.toLowerCase(Locale.getDefault());
-
-            try {
-                for (Product product : allProducts) {
-                    // Null-safe search across multiple fields
-                    boolean matchesName = product.getName() != null &&
-                                         product.getName().toLowerCase(Locale.getDefault()).contains(lowerQuery);
-
-                    boolean matchesDescription = product.getDescription() != null &&
-                                                 product.getDescription().toLowerCase(Locale.getDefault()).contains(lowerQuery);
-
-                    boolean matchesCategory = product.getCategory() != null &&
-                                             product.getCategory().toLowerCase(Locale.getDefault()).contains(lowerQuery);
-
-                    if (matchesName || matchesDescription || matchesCategory) {
-                        searchResults.add(product);
-                    }
-                }
-
-                Log.d(TAG, "Search for '" + query + "' returned " + searchResults.size() + " results out of " + allProducts.size() + " total products");
-            } catch (Exception e) {
-                Log.e(TAG, "Error during search", e);
-                Toast.makeText(this, "Search error occurred", Toast.LENGTH_SHORT).show();
-            }
+            // Case-insensitive match across name, description and category, debounced and off the UI thread
+            searchPipeline.submit(query);
         }
+    }
+
+    private void onSearchResults(String query, List<Product> results) {
+        searchResults.clear();
+        searchResults.addAll(results);
+        Log.d(TAG, "Search for '" + query + "' returned " + searchResults.size() + " results out of " + allProducts.size() + " total products");
 
-        productAdapter.notifyDataSetChanged();
+        productAdapter.updateList(searchResults);
         updateEmptyState();
     }
 
@@ -246,8 +257,9 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
         // Show empty state only when:
         // 1. Products are loaded
         // 2. User has typed something
-        // 3. No results found
+        // 3. No results found, and no pages left that could contain some
         boolean shouldShowEmpty = isProductsLoaded &&
+                                 isCatalogComplete &&
                                  !currentQuery.isEmpty() &&
                                  searchResults.isEmpty();
 
@@ -264,7 +276,7 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
         cartManager.addCartUpdateListener(this);
         updateCartBadge();
         if (productAdapter != null) {
-            productAdapter.notifyDataSetChanged();
+            productAdapter.refreshCartAndWishlistState();
         }
     }
 
@@ -274,6 +286,14 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
         cartManager.removeCartUpdateListener(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searchPipeline != null) {
+            searchPipeline.release();
+        }
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         finish();
@@ -285,6 +305,21 @@ public class SearchActivity extends AppCompatActivity implements CartManager.Car
         runOnUiThread(this::updateCartBadge);
     }
 
+    @Override
+    public void onCartItemChanged(String productId, int oldQuantity, int newQuantity) {
+        // Rebind only the card showing this product
+        if (productAdapter != null) {
+            productAdapter.notifyCartQuantityChanged(productId);
+        }
+    }
+
+    @Override
+    public void onCartCleared() {
+        if (productAdapter != null) {
+            productAdapter.refreshCartState();
+        }
+    }
+
     private void updateCartBadge() {
         if (tvCartBadge != null && cartManager != null) {
             int itemCount = cartManager.getCartItemCount();
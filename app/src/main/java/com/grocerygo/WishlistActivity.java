@@ -14,10 +14,9 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.grocerygo.adapters.ProductAdapter;
 import com.grocerygo.app.R;
+import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Product;
 import com.grocerygo.utils.WishlistManager;
 
@@ -34,7 +33,7 @@ public class WishlistActivity extends AppCompatActivity implements WishlistManag
     private LinearLayout llEmptyState;
     private TextView tvWishlistCount;
 
-    private FirebaseFirestore db;
+    private ProductRepository productRepository;
     private WishlistManager wishlistManager;
     private boolean isLoadingProducts = false;
 
@@ -43,7 +42,7 @@ public class WishlistActivity extends AppCompatActivity implements WishlistManag
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_wishlist);
 
-        db = FirebaseFirestore.getInstance();
+        productRepository = new ProductRepository();
         FirebaseAuth auth = FirebaseAuth.getInstance();
         wishlistManager = WishlistManager.getInstance();
 
@@ -117,49 +116,23 @@ public class WishlistActivity extends AppCompatActivity implements WishlistManag
             return;
         }
 
-        // Firestore 'in' queries support max 10 items, so we need to batch if more
-        int batchSize = 10;
-        List<List<String>> batches = new ArrayList<>();
-        for (int i = 0; i < productIds.size(); i += batchSize) {
-            batches.add(productIds.subList(i, Math.min(i + batchSize, productIds.size())));
-        }
-
-        Log.d(TAG, "Loading " + batches.size() + " batches of products");
-        loadBatchedProducts(batches, 0);
-    }
-
-    private void loadBatchedProducts(List<List<String>> batches, int batchIndex) {
-        if (batchIndex >= batches.size()) {
-            progressBar.setVisibility(View.GONE);
-            isLoadingProducts = false;
-            productAdapter.updateList(wishlistProducts);
-            updateEmptyState();
-            updateWishlistCount();
-            Log.d(TAG, "Finished loading all batches. Total products: " + wishlistProducts.size());
-            return;
-        }
-
-        Log.d(TAG, "Loading batch " + (batchIndex + 1) + " of " + batches.size());
-
-        db.collection("products")
-                .whereIn("productId", batches.get(batchIndex))
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    Log.d(TAG, "Batch " + (batchIndex + 1) + " loaded: " + queryDocumentSnapshots.size() + " products");
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Product product = document.toObject(Product.class);
-                        if (product != null) {
-                            wishlistProducts.add(product);
-                        }
-                    }
-                    loadBatchedProducts(batches, batchIndex + 1);
+        // Cached products resolve immediately; the rest are fetched in parallel batches
+        productRepository.getProductsByIds(productIds)
+                .addOnSuccessListener(products -> {
+                    wishlistProducts.clear();
+                    wishlistProducts.addAll(products);
+                    progressBar.setVisibility(View.GONE);
+                    isLoadingProducts = false;
+                    productAdapter.updateList(wishlistProducts);
+                    updateEmptyState();
+                    updateWishlistCount();
+                    Log.d(TAG, "Finished loading wishlist. Total products: " + wishlistProducts.size());
                 })
                 .addOnFailureListener(e -> {
                     progressBar.setVisibility(View.GONE);
                     isLoadingProducts = false;
-                    Log.e(TAG, "Failed to load batch " + (batchIndex + 1), e);
+                    Log.e(TAG, "Failed to load wishlist products", e);
                     Toast.makeText(this, "Failed to load products: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    // Still update UI with whatever we have
                     productAdapter.updateList(wishlistProducts);
                     updateEmptyState();
                     updateWishlistCount();
@@ -9,6 +9,7 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -17,8 +18,11 @@ import com.grocerygo.app.R;
 import com.grocerygo.models.Order;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHolder> {
     private Context context;
@@ -26,17 +30,74 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
     private SimpleDateFormat dateFormat;
     private OnOrderClickListener orderClickListener;
 
+    // Multi-select (admin panel): long-press starts it, taps then toggle orders
+    private boolean selectionEnabled = false;
+    private final Set<String> selectedOrderIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener selectionChangedListener;
+
     // Interface for order click listener
     public interface OnOrderClickListener {
         void onOrderClick(Order order);
     }
 
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
     public OrderAdapter(Context context, List<Order> orderList) {
         this.context = context;
         this.orderList = orderList;
         this.dateFormat = new SimpleDateFormat("dd MMM yyyy, hh:mm a", Locale.getDefault());
     }
 
+    /**
+     * Show a different list (e.g. another OrderIndex bucket when the tab changes)
+     */
+    public void setOrders(List<Order> orders) {
+        this.orderList = orders;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Let orders be selected with a long-press (for bulk actions)
+     */
+    public void setSelectionEnabled(boolean enabled, OnSelectionChangedListener listener) {
+        this.selectionEnabled = enabled;
+        this.selectionChangedListener = listener;
+        if (!enabled) clearSelection();
+    }
+
+    public boolean isSelecting() {
+        return !selectedOrderIds.isEmpty();
+    }
+
+    /**
+     * IDs of the selected orders, in the order they were selected
+     */
+    public List<String> getSelectedOrderIds() {
+        return new ArrayList<>(selectedOrderIds);
+    }
+
+    public void clearSelection() {
+        if (selectedOrderIds.isEmpty()) return;
+        selectedOrderIds.clear();
+        notifyDataSetChanged();
+        if (selectionChangedListener != null) {
+            selectionChangedListener.onSelectionChanged(0);
+        }
+    }
+
+    private void toggleSelection(Order order, int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        if (!selectedOrderIds.remove(order.getOrderId())) {
+            selectedOrderIds.add(order.getOrderId());
+        }
+        notifyItemChanged(position);
+        if (selectionChangedListener != null) {
+            selectionChangedListener.onSelectionChanged(selectedOrderIds.size());
+        }
+    }
+
     // Method to set custom click listener (for admin panel)
     public void setOnOrderClickListener(OnOrderClickListener listener) {
         this.orderClickListener = listener;
@@ -73,9 +134,21 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
         // Set delivery/status info
         setDeliveryInfo(holder, order);
 
+        boolean selected = selectedOrderIds.contains(order.getOrderId());
+        ((CardView) holder.itemView).setCardBackgroundColor(ContextCompat.getColor(context,
+                selected ? R.color.selected_item_background : R.color.white));
+
+        holder.itemView.setOnLongClickListener(v -> {
+            if (!selectionEnabled) return false;
+            toggleSelection(order, holder.getAdapterPosition());
+            return true;
+        });
+
         // Click listener - use custom listener if set (for admin panel), otherwise open details
         holder.itemView.setOnClickListener(v -> {
-            if (orderClickListener != null) {
+            if (isSelecting()) {
+                toggleSelection(order, holder.getAdapterPosition());
+            } else if (orderClickListener != null) {
                 orderClickListener.onOrderClick(order);
             } else {
                 Intent intent = new Intent(context, OrderDetailActivity.class);
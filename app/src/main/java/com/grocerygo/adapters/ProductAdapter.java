@@ -12,6 +12,8 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -19,26 +21,67 @@ import com.grocerygo.ProductDetailActivity;
 import com.grocerygo.app.R;
 import com.grocerygo.models.CartItem;
 import com.grocerygo.models.Product;
+import com.grocerygo.search.ProductSearchIndex;
+import com.grocerygo.search.SearchPipeline;
 import com.grocerygo.utils.CartManager;
 import com.grocerygo.utils.WishlistManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
+    private static final int FILTER_FIELDS =
+            ProductSearchIndex.FIELD_NAME | ProductSearchIndex.FIELD_DESCRIPTION;
+
+    private static final DiffUtil.ItemCallback<Product> DIFF_CALLBACK = new DiffUtil.ItemCallback<Product>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return Objects.equals(oldItem.getProductId(), newItem.getProductId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            // Only the fields the card actually displays
+            return oldItem == newItem
+                    || (Objects.equals(oldItem.getName(), newItem.getName())
+                    && oldItem.getPrice() == newItem.getPrice()
+                    && Objects.equals(oldItem.getUnit(), newItem.getUnit())
+                    && oldItem.getRating() == newItem.getRating()
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription()));
+        }
+    };
+
     private Context context;
-    private List<Product> productList;
+    private final AsyncListDiffer<Product> differ; // Diffs list updates on a background thread
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private final Map<String, Integer> positionsById = new HashMap<>(); // productId -> adapter position
     private List<Product> productListFull; // For search/filter functionality
     private CartManager cartManager;
     private WishlistManager wishlistManager;
+    private SearchPipeline filterPipeline; // Created on first filter() call
 
     public ProductAdapter(Context context, List<Product> productList) {
         this.context = context;
-        this.productList = productList;
         this.productListFull = new ArrayList<>(productList);
         this.cartManager = CartManager.getInstance(context);
         this.wishlistManager = WishlistManager.getInstance();
+        setHasStableIds(true);
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        this.differ.addListListener((previousList, currentList) -> rebuildPositions(currentList));
+        this.differ.submitList(new ArrayList<>(productList));
+    }
+
+    /**
+     * Typed payloads for partial rebinds - only the affected views are touched
+     */
+    public enum Payload {
+        CART_QTY_CHANGED,
+        WISHLIST_CHANGED
     }
 
     @NonNull
@@ -48,9 +91,27 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         return new ProductViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        // Partial bind: skip Glide and price/rating formatting
+        Product product = differ.getCurrentList().get(position);
+        for (Object payload : payloads) {
+            if (payload == Payload.CART_QTY_CHANGED) {
+                updateCartUI(holder, product);
+            } else if (payload == Payload.WISHLIST_CHANGED) {
+                updateWishlistIcon(holder, product);
+            }
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = productList.get(position);
+        Product product = differ.getCurrentList().get(position);
 
         holder.tvProductName.setText(product.getName());
         holder.tvCurrentPrice.setText(String.format(Locale.getDefault(), "₹%.0f", product.getPrice()));
@@ -108,6 +169,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             intent.putExtra("product_image", product.getImageUrl());
             intent.putExtra("product_description", product.getDescription());
             intent.putExtra("product_unit", product.getUnit());
+            intent.putExtra("product_category_id", product.getCategoryId());
             intent.putExtra("product_rating", product.getRating());
             context.startActivity(intent);
         });
@@ -138,6 +200,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                         product.getUnit(),
                         1 // Add 1 unit
                 );
+                cartItem.setCategoryId(product.getCategoryId());
 
                 // Add to cart
                 cartManager.addToCart(cartItem);
@@ -194,6 +257,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             intent.putExtra("product_image", product.getImageUrl());
             intent.putExtra("product_description", product.getDescription());
             intent.putExtra("product_unit", product.getUnit());
+            intent.putExtra("product_category_id", product.getCategoryId());
             intent.putExtra("product_rating", product.getRating());
             context.startActivity(intent);
         });
@@ -240,30 +304,117 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     @Override
     public int getItemCount() {
-        return productList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Stable id per productId, so RecyclerView can keep holders and animations across updates
+     */
+    @Override
+    public long getItemId(int position) {
+        Product product = differ.getCurrentList().get(position);
+        String key = product.getProductId() != null
+                ? product.getProductId()
+                : "@" + System.identityHashCode(product);
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = (long) stableIds.size();
+            stableIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Rebind only the cart controls of the row showing this product (O(1) lookup)
+     */
+    public void notifyCartQuantityChanged(String productId) {
+        notifyProductChanged(productId, Payload.CART_QTY_CHANGED);
+    }
+
+    /**
+     * Rebind only the wishlist heart of the row showing this product (O(1) lookup)
+     */
+    public void notifyWishlistChanged(String productId) {
+        notifyProductChanged(productId, Payload.WISHLIST_CHANGED);
+    }
+
+    /**
+     * Refresh cart controls of every row without a full rebind (e.g. after the cart is cleared)
+     */
+    public void refreshCartState() {
+        if (getItemCount() > 0) {
+            notifyItemRangeChanged(0, getItemCount(), Payload.CART_QTY_CHANGED);
+        }
+    }
+
+    /**
+     * Refresh cart controls and wishlist hearts of every row without a full rebind (e.g. in onResume)
+     */
+    public void refreshCartAndWishlistState() {
+        refreshCartState();
+        if (getItemCount() > 0) {
+            notifyItemRangeChanged(0, getItemCount(), Payload.WISHLIST_CHANGED);
+        }
+    }
+
+    private void notifyProductChanged(String productId, Payload payload) {
+        if (productId == null) return;
+        Integer position = positionsById.get(productId);
+        if (position != null) {
+            notifyItemChanged(position, payload);
+        }
+    }
+
+    private void rebuildPositions(List<Product> currentList) {
+        positionsById.clear();
+        for (int i = 0; i < currentList.size(); i++) {
+            String productId = currentList.get(i).getProductId();
+            if (productId != null) {
+                positionsById.put(productId, i);
+            }
+        }
     }
 
+    /**
+     * Replace the displayed list. Only rows whose product changed are rebound.
+     */
     public void updateList(List<Product> newList) {
-        productList.clear();
-        productList.addAll(newList);
+        updateList(newList, null);
+    }
+
+    /**
+     * Same as updateList, running commitCallback once the new list is displayed
+     */
+    public void updateList(List<Product> newList, Runnable commitCallback) {
         productListFull = new ArrayList<>(newList);
-        notifyDataSetChanged();
+        if (filterPipeline != null) {
+            filterPipeline.cancel();
+            filterPipeline.setCatalog(productListFull, FILTER_FIELDS);
+        }
+        // AsyncListDiffer needs a new list instance to detect a change
+        differ.submitList(new ArrayList<>(newList), commitCallback);
     }
 
+    /**
+     * Filter the list by name/description. Matching is debounced and runs on the
+     * search worker; only the latest query's result is applied.
+     */
     public void filter(String query) {
-        productList.clear();
-        if (query.isEmpty()) {
-            productList.addAll(productListFull);
-        } else {
-            String lowerCaseQuery = query.toLowerCase();
-            for (Product product : productListFull) {
-                if (product.getName().toLowerCase().contains(lowerCaseQuery) ||
-                    product.getDescription().toLowerCase().contains(lowerCaseQuery)) {
-                    productList.add(product);
-                }
-            }
+        if (query.trim().isEmpty()) {
+            if (filterPipeline != null) filterPipeline.cancel();
+            applyFilterResults(query, productListFull);
+            return;
         }
-        notifyDataSetChanged();
+
+        if (filterPipeline == null) {
+            filterPipeline = new SearchPipeline(this::applyFilterResults);
+            filterPipeline.setCatalog(productListFull, FILTER_FIELDS);
+        }
+        filterPipeline.submit(query);
+    }
+
+    private void applyFilterResults(String query, List<Product> results) {
+        differ.submitList(new ArrayList<>(results));
     }
 
     public static class ProductViewHolder extends RecyclerView.ViewHolder {
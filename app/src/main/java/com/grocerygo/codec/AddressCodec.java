@@ -0,0 +1,73 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.Address;
+
+import java.io.IOException;
+import java.util.Map;
+
+public final class AddressCodec implements ModelCodec<Address> {
+    public static final AddressCodec INSTANCE = new AddressCodec();
+
+    private AddressCodec() {}
+
+    @Override
+    public Address fromMap(String documentId, Map<String, Object> data) {
+        Address address = new Address();
+        address.setAddressId(documentId);
+        address.setUserId(FieldReader.getString(data, "userId"));
+        address.setFullName(FieldReader.getString(data, "fullName"));
+        address.setPhoneNumber(FieldReader.getString(data, "phoneNumber"));
+        address.setAddressLine1(FieldReader.getString(data, "addressLine1"));
+        address.setAddressLine2(FieldReader.getString(data, "addressLine2"));
+        address.setCity(FieldReader.getString(data, "city"));
+        address.setState(FieldReader.getString(data, "state"));
+        address.setPincode(FieldReader.getString(data, "pincode"));
+        address.setAddressType(FieldReader.getString(data, "addressType"));
+        // Queries and updates use "isDefault"; objects written by the Firestore mapper use "default"
+        address.setDefault(FieldReader.getBoolean(data, "isDefault") || FieldReader.getBoolean(data, "default"));
+        return address;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, Address address) throws IOException {
+        out.beginObject();
+        out.name("addressId").value(address.getAddressId());
+        out.name("userId").value(address.getUserId());
+        out.name("fullName").value(address.getFullName());
+        out.name("phoneNumber").value(address.getPhoneNumber());
+        out.name("addressLine1").value(address.getAddressLine1());
+        out.name("addressLine2").value(address.getAddressLine2());
+        out.name("city").value(address.getCity());
+        out.name("state").value(address.getState());
+        out.name("pincode").value(address.getPincode());
+        out.name("addressType").value(address.getAddressType());
+        out.name("isDefault").value(address.isDefault());
+        out.endObject();
+    }
+
+    @Override
+    public Address readJson(JsonReader in) throws IOException {
+        Address address = new Address();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "addressId": address.setAddressId(JsonFields.nextString(in)); break;
+                case "userId": address.setUserId(JsonFields.nextString(in)); break;
+                case "fullName": address.setFullName(JsonFields.nextString(in)); break;
+                case "phoneNumber": address.setPhoneNumber(JsonFields.nextString(in)); break;
+                case "addressLine1": address.setAddressLine1(JsonFields.nextString(in)); break;
+                case "addressLine2": address.setAddressLine2(JsonFields.nextString(in)); break;
+                case "city": address.setCity(JsonFields.nextString(in)); break;
+                case "state": address.setState(JsonFields.nextString(in)); break;
+                case "pincode": address.setPincode(JsonFields.nextString(in)); break;
+                case "addressType": address.setAddressType(JsonFields.nextString(in)); break;
+                case "isDefault": address.setDefault(JsonFields.nextBoolean(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return address;
+    }
+}
@@ -0,0 +1,66 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.CartItem;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Field names match what Gson wrote for the old SharedPreferences cart, so that JSON reads back as-is
+ */
+public final class CartItemCodec implements ModelCodec<CartItem> {
+    public static final CartItemCodec INSTANCE = new CartItemCodec();
+
+    private CartItemCodec() {}
+
+    @Override
+    public CartItem fromMap(String documentId, Map<String, Object> data) {
+        CartItem item = new CartItem();
+        String productId = FieldReader.getString(data, "productId");
+        item.setProductId(productId != null ? productId : documentId);
+        item.setProductName(FieldReader.getString(data, "productName"));
+        item.setProductImage(FieldReader.getString(data, "productImage"));
+        item.setProductPrice(FieldReader.getDouble(data, "productPrice"));
+        item.setProductUnit(FieldReader.getString(data, "productUnit"));
+        item.setCategoryId(FieldReader.getString(data, "categoryId"));
+        item.setQuantity(FieldReader.getInt(data, "quantity"));
+        return item;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, CartItem item) throws IOException {
+        out.beginObject();
+        out.name("productId").value(item.getProductId());
+        out.name("productName").value(item.getProductName());
+        out.name("productImage").value(item.getProductImage());
+        out.name("productPrice").value(item.getProductPrice());
+        out.name("productUnit").value(item.getProductUnit());
+        out.name("categoryId").value(item.getCategoryId());
+        out.name("quantity").value(item.getQuantity());
+        out.name("totalPrice").value(item.getTotalPrice());
+        out.endObject();
+    }
+
+    @Override
+    public CartItem readJson(JsonReader in) throws IOException {
+        CartItem item = new CartItem();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "productId": item.setProductId(JsonFields.nextString(in)); break;
+                case "productName": item.setProductName(JsonFields.nextString(in)); break;
+                case "productImage": item.setProductImage(JsonFields.nextString(in)); break;
+                case "productPrice": item.setProductPrice(JsonFields.nextDouble(in)); break;
+                case "productUnit": item.setProductUnit(JsonFields.nextString(in)); break;
+                case "categoryId": item.setCategoryId(JsonFields.nextString(in)); break;
+                case "quantity": item.setQuantity(JsonFields.nextInt(in)); break;
+                // totalPrice is derived from price and quantity
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return item;
+    }
+}
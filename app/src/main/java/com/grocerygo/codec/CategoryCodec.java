@@ -0,0 +1,51 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.Category;
+
+import java.io.IOException;
+import java.util.Map;
+
+public final class CategoryCodec implements ModelCodec<Category> {
+    public static final CategoryCodec INSTANCE = new CategoryCodec();
+
+    private CategoryCodec() {}
+
+    @Override
+    public Category fromMap(String documentId, Map<String, Object> data) {
+        Category category = new Category();
+        category.setCategoryId(documentId);
+        category.setName(FieldReader.getString(data, "name"));
+        category.setImageUrl(FieldReader.getString(data, "imageUrl"));
+        category.setProductCount(FieldReader.getInt(data, "productCount"));
+        return category;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, Category category) throws IOException {
+        out.beginObject();
+        out.name("categoryId").value(category.getCategoryId());
+        out.name("name").value(category.getName());
+        out.name("imageUrl").value(category.getImageUrl());
+        out.name("productCount").value(category.getProductCount());
+        out.endObject();
+    }
+
+    @Override
+    public Category readJson(JsonReader in) throws IOException {
+        Category category = new Category();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "categoryId": category.setCategoryId(JsonFields.nextString(in)); break;
+                case "name": category.setName(JsonFields.nextString(in)); break;
+                case "imageUrl": category.setImageUrl(JsonFields.nextString(in)); break;
+                case "productCount": category.setProductCount(JsonFields.nextInt(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return category;
+    }
+}
@@ -0,0 +1,85 @@
+package com.grocerygo.codec;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codecs - Entry points for decoding Firestore snapshots and JSON with a ModelCodec
+ * Drop-in replacements for DocumentSnapshot.toObject() / QuerySnapshot.toObjects()
+ * that skip the reflective class mapper.
+ */
+public final class Codecs {
+
+    private Codecs() {}
+
+    /**
+     * Decode a single document, or null if it doesn't exist (same contract as toObject)
+     */
+    public static <T> T decode(DocumentSnapshot document, ModelCodec<T> codec) {
+        if (document == null) return null;
+        Map<String, Object> data = document.getData();
+        if (data == null) return null;
+        return codec.fromMap(document.getId(), data);
+    }
+
+    /**
+     * Decode every document of a query result, in result order
+     */
+    public static <T> List<T> decodeAll(QuerySnapshot snapshot, ModelCodec<T> codec) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        List<T> result = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            T value = decode(document, codec);
+            if (value != null) result.add(value);
+        }
+        return result;
+    }
+
+    public static <T> String toJsonArray(List<T> values, ModelCodec<T> codec) {
+        StringWriter buffer = new StringWriter();
+        try (JsonWriter out = new JsonWriter(buffer)) {
+            // Absent fields read back as null anyway
+            out.setSerializeNulls(false);
+            out.beginArray();
+            for (T value : values) {
+                codec.writeJson(out, value);
+            }
+            out.endArray();
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Parse a JSON array of models; a null or "null" input gives an empty list
+     */
+    public static <T> List<T> fromJsonArray(String json, ModelCodec<T> codec) throws IOException {
+        List<T> result = new ArrayList<>();
+        if (json == null) return result;
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            if (in.peek() == JsonToken.NULL) return result;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                result.add(codec.readJson(in));
+            }
+            in.endArray();
+        }
+        return result;
+    }
+}
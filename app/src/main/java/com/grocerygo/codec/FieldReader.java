@@ -0,0 +1,73 @@
+package com.grocerygo.codec;
+
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Null- and type-tolerant accessors for Firestore data maps.
+ * Firestore returns every number as Long or Double and dates as Timestamp.
+ */
+final class FieldReader {
+
+    private FieldReader() {}
+
+    static String getString(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (value == null || value instanceof String) return (String) value;
+        return value.toString();
+    }
+
+    static double getDouble(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    static int getInt(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    static boolean getBoolean(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    static boolean has(Map<String, Object> data, String key) {
+        return data.get(key) != null;
+    }
+
+    static Date getDate(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate();
+        if (value instanceof Date) return (Date) value;
+        if (value instanceof Number) return new Date(((Number) value).longValue());
+        return null;
+    }
+
+    static List<String> getStringList(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (!(value instanceof List)) return null;
+        List<?> raw = (List<?>) value;
+        List<String> result = new ArrayList<>(raw.size());
+        for (Object element : raw) {
+            if (element != null) result.add(element.toString());
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> getMapList(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        if (!(value instanceof List)) return null;
+        List<?> raw = (List<?>) value;
+        List<Map<String, Object>> result = new ArrayList<>(raw.size());
+        for (Object element : raw) {
+            if (element instanceof Map) result.add((Map<String, Object>) element);
+        }
+        return result;
+    }
+}
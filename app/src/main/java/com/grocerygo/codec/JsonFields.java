@@ -0,0 +1,96 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Small helpers for reading and writing nullable values on Gson's JSON streams.
+ * Dates are written as epoch milliseconds.
+ */
+final class JsonFields {
+
+    private JsonFields() {}
+
+    static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static double nextDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0.0;
+        }
+        return in.nextDouble();
+    }
+
+    static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    static boolean nextBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+
+    static Date nextDate(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return new Date(in.nextLong());
+    }
+
+    static List<String> nextStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            String value = nextString(in);
+            if (value != null) result.add(value);
+        }
+        in.endArray();
+        return result;
+    }
+
+    static void writeDate(JsonWriter out, String name, Date date) throws IOException {
+        out.name(name);
+        if (date == null) {
+            out.nullValue();
+        } else {
+            out.value(date.getTime());
+        }
+    }
+
+    static void writeStringList(JsonWriter out, String name, List<String> values) throws IOException {
+        out.name(name);
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,24 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Explicit, reflection-free mapping for one model class.
+ * Reads Firestore documents from DocumentSnapshot.getData() maps and
+ * reads/writes the model as a JSON object on a stream.
+ */
+public interface ModelCodec<T> {
+
+    /**
+     * Build the model from a document's data; documentId fills the @DocumentId field
+     */
+    T fromMap(String documentId, Map<String, Object> data);
+
+    void writeJson(JsonWriter out, T value) throws IOException;
+
+    T readJson(JsonReader in) throws IOException;
+}
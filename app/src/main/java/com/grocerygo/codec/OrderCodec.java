@@ -0,0 +1,145 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.Order;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class OrderCodec implements ModelCodec<Order> {
+    public static final OrderCodec INSTANCE = new OrderCodec();
+
+    private OrderCodec() {}
+
+    @Override
+    public Order fromMap(String documentId, Map<String, Object> data) {
+        Order order = new Order();
+        order.setOrderId(documentId);
+        order.setUserId(FieldReader.getString(data, "userId"));
+        order.setItems(itemsFromMaps(FieldReader.getMapList(data, "items")));
+        order.setTotalAmount(FieldReader.getDouble(data, "totalAmount"));
+        order.setDeliveryAddress(FieldReader.getString(data, "deliveryAddress"));
+        order.setStatus(FieldReader.getString(data, "status"));
+        order.setPaymentMethod(FieldReader.getString(data, "paymentMethod"));
+        // The Firestore mapper writes "paid"; updatePaymentStatus writes "isPaid"
+        order.setPaid(FieldReader.getBoolean(data, "paid") || FieldReader.getBoolean(data, "isPaid"));
+        order.setAssignedDeliveryPartner(FieldReader.getString(data, "assignedDeliveryPartner"));
+        order.setDeliveryPartnerName(FieldReader.getString(data, "deliveryPartnerName"));
+        order.setConfirmed(FieldReader.getBoolean(data, "confirmed"));
+        order.setCouponCode(FieldReader.getString(data, "couponCode"));
+        order.setOrderDate(FieldReader.getDate(data, "orderDate"));
+        order.setDeliveryDate(FieldReader.getDate(data, "deliveryDate"));
+        return order;
+    }
+
+    private static List<Order.OrderItem> itemsFromMaps(List<Map<String, Object>> maps) {
+        if (maps == null) return null;
+        List<Order.OrderItem> items = new ArrayList<>(maps.size());
+        for (Map<String, Object> map : maps) {
+            Order.OrderItem item = new Order.OrderItem();
+            item.setProductId(FieldReader.getString(map, "productId"));
+            item.setProductName(FieldReader.getString(map, "productName"));
+            item.setQuantity(FieldReader.getInt(map, "quantity"));
+            item.setPrice(FieldReader.getDouble(map, "price"));
+            item.setImageUrl(FieldReader.getString(map, "imageUrl"));
+            items.add(item);
+        }
+        return items;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, Order order) throws IOException {
+        out.beginObject();
+        out.name("orderId").value(order.getOrderId());
+        out.name("userId").value(order.getUserId());
+        out.name("items");
+        if (order.getItems() == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (Order.OrderItem item : order.getItems()) {
+                out.beginObject();
+                out.name("productId").value(item.getProductId());
+                out.name("productName").value(item.getProductName());
+                out.name("quantity").value(item.getQuantity());
+                out.name("price").value(item.getPrice());
+                out.name("imageUrl").value(item.getImageUrl());
+                out.endObject();
+            }
+            out.endArray();
+        }
+        out.name("totalAmount").value(order.getTotalAmount());
+        out.name("deliveryAddress").value(order.getDeliveryAddress());
+        out.name("status").value(order.getStatus());
+        out.name("paymentMethod").value(order.getPaymentMethod());
+        out.name("paid").value(order.isPaid());
+        out.name("assignedDeliveryPartner").value(order.getAssignedDeliveryPartner());
+        out.name("deliveryPartnerName").value(order.getDeliveryPartnerName());
+        out.name("confirmed").value(order.isConfirmed());
+        out.name("couponCode").value(order.getCouponCode());
+        JsonFields.writeDate(out, "orderDate", order.getOrderDate());
+        JsonFields.writeDate(out, "deliveryDate", order.getDeliveryDate());
+        out.endObject();
+    }
+
+    @Override
+    public Order readJson(JsonReader in) throws IOException {
+        Order order = new Order();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "orderId": order.setOrderId(JsonFields.nextString(in)); break;
+                case "userId": order.setUserId(JsonFields.nextString(in)); break;
+                case "items": order.setItems(readItems(in)); break;
+                case "totalAmount": order.setTotalAmount(JsonFields.nextDouble(in)); break;
+                case "deliveryAddress": order.setDeliveryAddress(JsonFields.nextString(in)); break;
+                case "status": order.setStatus(JsonFields.nextString(in)); break;
+                case "paymentMethod": order.setPaymentMethod(JsonFields.nextString(in)); break;
+                case "paid":
+                case "isPaid":
+                    if (JsonFields.nextBoolean(in)) order.setPaid(true);
+                    break;
+                case "assignedDeliveryPartner": order.setAssignedDeliveryPartner(JsonFields.nextString(in)); break;
+                case "deliveryPartnerName": order.setDeliveryPartnerName(JsonFields.nextString(in)); break;
+                case "confirmed": order.setConfirmed(JsonFields.nextBoolean(in)); break;
+                case "couponCode": order.setCouponCode(JsonFields.nextString(in)); break;
+                case "orderDate": order.setOrderDate(JsonFields.nextDate(in)); break;
+                case "deliveryDate": order.setDeliveryDate(JsonFields.nextDate(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return order;
+    }
+
+    private static List<Order.OrderItem> readItems(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<Order.OrderItem> items = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Order.OrderItem item = new Order.OrderItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "productId": item.setProductId(JsonFields.nextString(in)); break;
+                    case "productName": item.setProductName(JsonFields.nextString(in)); break;
+                    case "quantity": item.setQuantity(JsonFields.nextInt(in)); break;
+                    case "price": item.setPrice(JsonFields.nextDouble(in)); break;
+                    case "imageUrl": item.setImageUrl(JsonFields.nextString(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            items.add(item);
+        }
+        in.endArray();
+        return items;
+    }
+}
@@ -0,0 +1,161 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.pricing.PricingRules;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fields left out of config/pricing keep the built-in defaults
+ */
+public final class PricingRulesCodec implements ModelCodec<PricingRules> {
+    public static final PricingRulesCodec INSTANCE = new PricingRulesCodec();
+
+    private PricingRulesCodec() {}
+
+    @Override
+    public PricingRules fromMap(String documentId, Map<String, Object> data) {
+        PricingRules rules = new PricingRules();
+        if (FieldReader.has(data, "taxPercent")) {
+            rules.setTaxPercent(FieldReader.getDouble(data, "taxPercent"));
+        }
+        if (FieldReader.has(data, "deliveryFee")) {
+            rules.setDeliveryFee(FieldReader.getDouble(data, "deliveryFee"));
+        }
+        if (FieldReader.has(data, "freeDeliveryThreshold")) {
+            rules.setFreeDeliveryThreshold(FieldReader.getDouble(data, "freeDeliveryThreshold"));
+        }
+
+        List<Map<String, Object>> categoryMaps = FieldReader.getMapList(data, "categoryDiscounts");
+        if (categoryMaps != null) {
+            List<PricingRules.CategoryDiscount> discounts = new ArrayList<>(categoryMaps.size());
+            for (Map<String, Object> map : categoryMaps) {
+                discounts.add(new PricingRules.CategoryDiscount(
+                        FieldReader.getString(map, "categoryId"),
+                        FieldReader.getDouble(map, "percentOff")));
+            }
+            rules.setCategoryDiscounts(discounts);
+        }
+
+        List<Map<String, Object>> couponMaps = FieldReader.getMapList(data, "coupons");
+        if (couponMaps != null) {
+            List<PricingRules.Coupon> coupons = new ArrayList<>(couponMaps.size());
+            for (Map<String, Object> map : couponMaps) {
+                PricingRules.Coupon coupon = new PricingRules.Coupon();
+                coupon.setCode(FieldReader.getString(map, "code"));
+                coupon.setPercentOff(FieldReader.getDouble(map, "percentOff"));
+                coupon.setAmountOff(FieldReader.getDouble(map, "amountOff"));
+                coupon.setMinSubtotal(FieldReader.getDouble(map, "minSubtotal"));
+                coupon.setMaxDiscount(FieldReader.getDouble(map, "maxDiscount"));
+                coupon.setFreeDelivery(FieldReader.getBoolean(map, "freeDelivery"));
+                coupons.add(coupon);
+            }
+            rules.setCoupons(coupons);
+        }
+        return rules;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, PricingRules rules) throws IOException {
+        out.beginObject();
+        out.name("taxPercent").value(rules.getTaxPercent());
+        out.name("deliveryFee").value(rules.getDeliveryFee());
+        out.name("freeDeliveryThreshold").value(rules.getFreeDeliveryThreshold());
+        out.name("categoryDiscounts").beginArray();
+        for (PricingRules.CategoryDiscount discount : rules.getCategoryDiscounts()) {
+            out.beginObject();
+            out.name("categoryId").value(discount.getCategoryId());
+            out.name("percentOff").value(discount.getPercentOff());
+            out.endObject();
+        }
+        out.endArray();
+        out.name("coupons").beginArray();
+        for (PricingRules.Coupon coupon : rules.getCoupons()) {
+            out.beginObject();
+            out.name("code").value(coupon.getCode());
+            out.name("percentOff").value(coupon.getPercentOff());
+            out.name("amountOff").value(coupon.getAmountOff());
+            out.name("minSubtotal").value(coupon.getMinSubtotal());
+            out.name("maxDiscount").value(coupon.getMaxDiscount());
+            out.name("freeDelivery").value(coupon.isFreeDelivery());
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public PricingRules readJson(JsonReader in) throws IOException {
+        PricingRules rules = new PricingRules();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "taxPercent": rules.setTaxPercent(JsonFields.nextDouble(in)); break;
+                case "deliveryFee": rules.setDeliveryFee(JsonFields.nextDouble(in)); break;
+                case "freeDeliveryThreshold": rules.setFreeDeliveryThreshold(JsonFields.nextDouble(in)); break;
+                case "categoryDiscounts": rules.setCategoryDiscounts(readCategoryDiscounts(in)); break;
+                case "coupons": rules.setCoupons(readCoupons(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return rules;
+    }
+
+    private static List<PricingRules.CategoryDiscount> readCategoryDiscounts(JsonReader in) throws IOException {
+        List<PricingRules.CategoryDiscount> discounts = new ArrayList<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return discounts;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            PricingRules.CategoryDiscount discount = new PricingRules.CategoryDiscount();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "categoryId": discount.setCategoryId(JsonFields.nextString(in)); break;
+                    case "percentOff": discount.setPercentOff(JsonFields.nextDouble(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            discounts.add(discount);
+        }
+        in.endArray();
+        return discounts;
+    }
+
+    private static List<PricingRules.Coupon> readCoupons(JsonReader in) throws IOException {
+        List<PricingRules.Coupon> coupons = new ArrayList<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return coupons;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            PricingRules.Coupon coupon = new PricingRules.Coupon();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "code": coupon.setCode(JsonFields.nextString(in)); break;
+                    case "percentOff": coupon.setPercentOff(JsonFields.nextDouble(in)); break;
+                    case "amountOff": coupon.setAmountOff(JsonFields.nextDouble(in)); break;
+                    case "minSubtotal": coupon.setMinSubtotal(JsonFields.nextDouble(in)); break;
+                    case "maxDiscount": coupon.setMaxDiscount(JsonFields.nextDouble(in)); break;
+                    case "freeDelivery": coupon.setFreeDelivery(JsonFields.nextBoolean(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            coupons.add(coupon);
+        }
+        in.endArray();
+        return coupons;
+    }
+}
@@ -0,0 +1,81 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.Product;
+
+import java.io.IOException;
+import java.util.Map;
+
+public final class ProductCodec implements ModelCodec<Product> {
+    public static final ProductCodec INSTANCE = new ProductCodec();
+
+    private ProductCodec() {}
+
+    @Override
+    public Product fromMap(String documentId, Map<String, Object> data) {
+        Product product = new Product();
+        product.setProductId(documentId);
+        product.setName(FieldReader.getString(data, "name"));
+        product.setDescription(FieldReader.getString(data, "description"));
+        product.setPrice(FieldReader.getDouble(data, "price"));
+        product.setImageUrl(FieldReader.getString(data, "imageUrl"));
+        product.setCategory(FieldReader.getString(data, "category"));
+        product.setCategoryId(FieldReader.getString(data, "categoryId"));
+        product.setUnit(FieldReader.getString(data, "unit"));
+        // setStockQuantity derives "available"; an explicit field wins
+        product.setStockQuantity(FieldReader.getInt(data, "stockQuantity"));
+        if (FieldReader.has(data, "available")) {
+            product.setAvailable(FieldReader.getBoolean(data, "available"));
+        }
+        product.setRating(FieldReader.getDouble(data, "rating"));
+        product.setReviewCount(FieldReader.getInt(data, "reviewCount"));
+        return product;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, Product product) throws IOException {
+        out.beginObject();
+        out.name("productId").value(product.getProductId());
+        out.name("name").value(product.getName());
+        out.name("description").value(product.getDescription());
+        out.name("price").value(product.getPrice());
+        out.name("imageUrl").value(product.getImageUrl());
+        out.name("category").value(product.getCategory());
+        out.name("categoryId").value(product.getCategoryId());
+        out.name("unit").value(product.getUnit());
+        out.name("stockQuantity").value(product.getStockQuantity());
+        out.name("available").value(product.isAvailable());
+        out.name("rating").value(product.getRating());
+        out.name("reviewCount").value(product.getReviewCount());
+        out.endObject();
+    }
+
+    @Override
+    public Product readJson(JsonReader in) throws IOException {
+        Product product = new Product();
+        Boolean available = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "productId": product.setProductId(JsonFields.nextString(in)); break;
+                case "name": product.setName(JsonFields.nextString(in)); break;
+                case "description": product.setDescription(JsonFields.nextString(in)); break;
+                case "price": product.setPrice(JsonFields.nextDouble(in)); break;
+                case "imageUrl": product.setImageUrl(JsonFields.nextString(in)); break;
+                case "category": product.setCategory(JsonFields.nextString(in)); break;
+                case "categoryId": product.setCategoryId(JsonFields.nextString(in)); break;
+                case "unit": product.setUnit(JsonFields.nextString(in)); break;
+                case "stockQuantity": product.setStockQuantity(JsonFields.nextInt(in)); break;
+                case "available": available = JsonFields.nextBoolean(in); break;
+                case "rating": product.setRating(JsonFields.nextDouble(in)); break;
+                case "reviewCount": product.setReviewCount(JsonFields.nextInt(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        // Applied last so it isn't overwritten by setStockQuantity
+        if (available != null) product.setAvailable(available);
+        return product;
+    }
+}
@@ -0,0 +1,83 @@
+package com.grocerygo.codec;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.grocerygo.models.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class UserCodec implements ModelCodec<User> {
+    public static final UserCodec INSTANCE = new UserCodec();
+
+    private UserCodec() {}
+
+    @Override
+    public User fromMap(String documentId, Map<String, Object> data) {
+        // The no-arg constructor supplies the same defaults the Firestore mapper relied on
+        User user = new User();
+        user.setUserId(documentId);
+        user.setEmail(FieldReader.getString(data, "email"));
+        user.setName(FieldReader.getString(data, "name"));
+        user.setPhone(FieldReader.getString(data, "phone"));
+        user.setDateOfBirth(FieldReader.getString(data, "dateOfBirth"));
+        user.setProfileImageUrl(FieldReader.getString(data, "profileImageUrl"));
+        if (FieldReader.has(data, "role")) {
+            user.setRole(FieldReader.getString(data, "role"));
+        }
+        List<String> addresses = FieldReader.getStringList(data, "addresses");
+        if (addresses != null) user.setAddresses(addresses);
+        List<String> wishlist = FieldReader.getStringList(data, "wishlist");
+        if (wishlist != null) user.setWishlist(wishlist);
+        user.setCreatedAt(FieldReader.getDate(data, "createdAt"));
+        user.setUpdatedAt(FieldReader.getDate(data, "updatedAt"));
+        return user;
+    }
+
+    @Override
+    public void writeJson(JsonWriter out, User user) throws IOException {
+        out.beginObject();
+        out.name("userId").value(user.getUserId());
+        out.name("email").value(user.getEmail());
+        out.name("name").value(user.getName());
+        out.name("phone").value(user.getPhone());
+        out.name("dateOfBirth").value(user.getDateOfBirth());
+        out.name("profileImageUrl").value(user.getProfileImageUrl());
+        out.name("role").value(user.getRole());
+        JsonFields.writeStringList(out, "addresses", user.getAddresses());
+        JsonFields.writeStringList(out, "wishlist", user.getWishlist());
+        JsonFields.writeDate(out, "createdAt", user.getCreatedAt());
+        JsonFields.writeDate(out, "updatedAt", user.getUpdatedAt());
+        out.endObject();
+    }
+
+    @Override
+    public User readJson(JsonReader in) throws IOException {
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "userId": user.setUserId(JsonFields.nextString(in)); break;
+                case "email": user.setEmail(JsonFields.nextString(in)); break;
+                case "name": user.setName(JsonFields.nextString(in)); break;
+                case "phone": user.setPhone(JsonFields.nextString(in)); break;
+                case "dateOfBirth": user.setDateOfBirth(JsonFields.nextString(in)); break;
+                case "profileImageUrl": user.setProfileImageUrl(JsonFields.nextString(in)); break;
+                case "role": user.setRole(JsonFields.nextString(in)); break;
+                case "addresses": user.setAddresses(orEmpty(JsonFields.nextStringList(in))); break;
+                case "wishlist": user.setWishlist(orEmpty(JsonFields.nextStringList(in))); break;
+                case "createdAt": user.setCreatedAt(JsonFields.nextDate(in)); break;
+                case "updatedAt": user.setUpdatedAt(JsonFields.nextDate(in)); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private static List<String> orEmpty(List<String> values) {
+        return values != null ? values : new ArrayList<>();
+    }
+}
@@ -7,6 +7,8 @@ import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.UserCodec;
 import com.grocerygo.models.User;
 
 import java.util.HashMap;
@@ -96,12 +98,10 @@ public class AuthRepository {
 
     // Get user data from Firestore
     public Task<User> getUserData(String userId) {
-        return db.collection("users")
-                .document(userId)
-                .get()
+        return FirebaseManager.getInstance().getUserDocument(userId)
                 .continueWith(task -> {
                     if (task.isSuccessful() && task.getResult() != null) {
-                        return task.getResult().toObject(User.class);
+                        return Codecs.decode(task.getResult(), UserCodec.INSTANCE);
                     }
                     return null;
                 });
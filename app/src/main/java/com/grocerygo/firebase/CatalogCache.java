@@ -0,0 +1,168 @@
+package com.grocerygo.firebase;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CatalogCache - Process-wide cache for catalog reads (products and categories)
+ * Values expire after a TTL and the least recently used entries are evicted once
+ * the cache is full. Concurrent requests for a key that is being loaded share the
+ * same in-flight Task (through a SingleFlight) instead of querying Firestore again.
+ * Failures are never cached.
+ */
+public class CatalogCache {
+    private static final String TAG = "CatalogCache";
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static CatalogCache instance;
+
+    private long ttlMillis = DEFAULT_TTL_MS;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    // Guarded by "this"; access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final SingleFlight loads = new SingleFlight();
+    // Bumped by every invalidation, so a load that started before it isn't stored
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private CatalogCache() {}
+
+    public static synchronized CatalogCache getInstance() {
+        if (instance == null) {
+            instance = new CatalogCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Change how long values stay fresh and how many are kept. Existing entries are dropped.
+     */
+    public synchronized void configure(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        invalidateAll();
+    }
+
+    /**
+     * Cached value for key if it is still fresh; otherwise the in-flight load for key,
+     * or a new one started with loader.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Task<T> get(String key, SingleFlight.Loader<T> loader) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return Tasks.forResult((T) entry.value);
+            }
+            entries.remove(key);
+        }
+
+        long loadGeneration = generation;
+        // Loaders only start the read, so holding the lock here is cheap
+        return loads.run(key, () -> {
+            misses.incrementAndGet();
+            Task<T> load = loader.load();
+            // Completion listeners are posted to the main thread, never run inline
+            load.addOnCompleteListener(task -> {
+                synchronized (this) {
+                    if (task.isSuccessful() && generation == loadGeneration) {
+                        entries.put(key, new Entry(task.getResult(), System.currentTimeMillis() + ttlMillis));
+                    }
+                }
+            });
+            return load;
+        });
+    }
+
+    /**
+     * Fresh values of every entry whose key starts with prefix, without touching
+     * LRU order or the hit/miss counters (for resolving items out of cached lists)
+     */
+    public synchronized List<Object> freshValues(String prefix) {
+        long now = System.currentTimeMillis();
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().expiresAt > now && entry.getKey().startsWith(prefix)) {
+                values.add(entry.getValue().value);
+            }
+        }
+        return values;
+    }
+
+    public synchronized void invalidate(String key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Drop every entry whose key starts with prefix (e.g. after a product is edited)
+     */
+    public synchronized void invalidatePrefix(String prefix) {
+        generation++;
+        Iterator<String> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Requests that joined a load already in flight instead of starting their own
+     */
+    public long getCoalescedCount() {
+        return loads.getSharedCount();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public void logStats() {
+        Log.d(TAG, "hits=" + hits.get() + " misses=" + misses.get() + " coalesced=" + getCoalescedCount()
+                + " entries=" + size());
+    }
+
+    private static class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
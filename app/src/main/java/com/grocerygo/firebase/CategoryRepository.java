@@ -4,70 +4,91 @@ import android.util.Log;
 
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.codec.CategoryCodec;
+import com.grocerygo.codec.Codecs;
 import com.grocerygo.models.Category;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class CategoryRepository {
     private static final String TAG = "CategoryRepository";
     private final FirebaseFirestore db;
     private static final String COLLECTION_CATEGORIES = "categories";
+    // Prefix of every CatalogCache key owned by this repository
+    static final String CACHE_PREFIX = "categories:";
+
+    private final CatalogCache cache;
 
     public CategoryRepository() {
         this.db = FirebaseManager.getInstance().getDb();
+        this.cache = CatalogCache.getInstance();
     }
 
-    // Get all categories
+    // Get all categories (shared through the CatalogCache; failures are not cached)
     public Task<List<Category>> getAllCategories() {
-        return db.collection(COLLECTION_CATEGORIES)
-                .get()
-                .continueWith(task -> {
-                    List<Category> categories = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        categories = task.getResult().toObjects(Category.class);
-                        Log.d(TAG, "Categories fetched: " + categories.size());
-                    } else {
-                        Log.e(TAG, "Error getting categories", task.getException());
-                    }
-                    return categories;
-                });
+        return cache.get(CACHE_PREFIX + "all", () -> db.collection(COLLECTION_CATEGORIES)
+                        .get()
+                        .continueWith(task -> {
+                            if (!task.isSuccessful() || task.getResult() == null) {
+                                Exception e = task.getException();
+                                Log.e(TAG, "Error getting categories", e);
+                                if (e != null) {
+                                    throw e;
+                                }
+                                throw new Exception("Unknown error getting categories");
+                            }
+                            List<Category> categories = Codecs.decodeAll(task.getResult(), CategoryCodec.INSTANCE);
+                            Log.d(TAG, "Categories fetched: " + categories.size());
+                            return Collections.unmodifiableList(categories);
+                        }))
+                .continueWith(task -> task.isSuccessful() && task.getResult() != null
+                        ? task.getResult() : new ArrayList<>());
     }
 
     // Get category by ID
     public Task<Category> getCategoryById(String categoryId) {
-        return db.collection(COLLECTION_CATEGORIES)
-                .document(categoryId)
-                .get()
-                .continueWith(task -> {
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        return task.getResult().toObject(Category.class);
-                    }
-                    return null;
-                });
+        return cache.get(CACHE_PREFIX + "id=" + categoryId, () -> db.collection(COLLECTION_CATEGORIES)
+                        .document(categoryId)
+                        .get()
+                        .continueWith(task -> {
+                            if (task.isSuccessful() && task.getResult() != null) {
+                                return Codecs.decode(task.getResult(), CategoryCodec.INSTANCE);
+                            }
+                            Exception e = task.getException();
+                            throw e != null ? e : new Exception("Unknown error getting category " + categoryId);
+                        }))
+                .continueWith(task -> task.isSuccessful() ? task.getResult() : null);
     }
 
     // Add a new category
     public Task<Void> addCategory(Category category) {
         String categoryId = db.collection(COLLECTION_CATEGORIES).document().getId();
         category.setCategoryId(categoryId);
-        return db.collection(COLLECTION_CATEGORIES)
+        return invalidateOnSuccess(db.collection(COLLECTION_CATEGORIES)
                 .document(categoryId)
-                .set(category);
+                .set(category));
     }
 
     // Update category
     public Task<Void> updateCategory(Category category) {
-        return db.collection(COLLECTION_CATEGORIES)
+        return invalidateOnSuccess(db.collection(COLLECTION_CATEGORIES)
                 .document(category.getCategoryId())
-                .set(category);
+                .set(category));
     }
 
     // Delete category
     public Task<Void> deleteCategory(String categoryId) {
-        return db.collection(COLLECTION_CATEGORIES)
+        return invalidateOnSuccess(db.collection(COLLECTION_CATEGORIES)
                 .document(categoryId)
-                .delete();
+                .delete());
     }
-}
 
+    /**
+     * Drop cached category reads once a write has landed
+     */
+    private Task<Void> invalidateOnSuccess(Task<Void> write) {
+        return write.addOnSuccessListener(aVoid -> cache.invalidatePrefix(CACHE_PREFIX));
+    }
+}
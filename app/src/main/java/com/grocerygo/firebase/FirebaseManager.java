@@ -3,9 +3,12 @@ package com.grocerygo.firebase;
 import android.util.Log;
 
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.QuerySnapshot;
 
 public class FirebaseManager {
     private static final String TAG = "FirebaseManager";
@@ -58,4 +61,23 @@ public class FirebaseManager {
         FirebaseUser user = auth.getCurrentUser();
         return user != null ? user.getUid() : null;
     }
+
+    /**
+     * Read users/{userId}. Screens opening at the same time share one read.
+     */
+    public Task<DocumentSnapshot> getUserDocument(String userId) {
+        return SingleFlight.getInstance().get(db.collection("users").document(userId));
+    }
+
+    /**
+     * Query the user's default address (at most one document). Concurrent callers share one query.
+     */
+    public Task<QuerySnapshot> getDefaultAddress(String userId) {
+        return SingleFlight.getInstance().get(
+                db.collection("addresses")
+                        .whereEqualTo("userId", userId)
+                        .whereEqualTo("isDefault", true)
+                        .limit(1),
+                "addresses?userId=" + userId + "&isDefault=true&limit=1");
+    }
 }
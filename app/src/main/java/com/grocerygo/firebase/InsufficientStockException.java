@@ -0,0 +1,28 @@
+package com.grocerygo.firebase;
+
+/**
+ * InsufficientStockException - An order asked for more of a product than is in stock
+ * Thrown by OrderRepository.placeOrderAtomically; nothing was written.
+ */
+public class InsufficientStockException extends Exception {
+    private final String productId;
+    private final String productName;
+    private final int available;
+
+    public InsufficientStockException(String productId, String productName, int available) {
+        super((productName != null ? productName : productId)
+                + (available > 0 ? " only has " + available + " left in stock" : " is out of stock"));
+        this.productId = productId;
+        this.productName = productName;
+        this.available = available;
+    }
+
+    public String getProductId() { return productId; }
+
+    public String getProductName() { return productName; }
+
+    /**
+     * Units in stock when the order was attempted
+     */
+    public int getAvailable() { return available; }
+}
@@ -4,21 +4,42 @@ import android.util.Log;
 
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.functions.FirebaseFunctions;
+import com.google.firebase.functions.FirebaseFunctionsException;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.OrderCodec;
 import com.grocerygo.models.Order;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class OrderRepository {
     private static final String TAG = "OrderRepository";
     private final FirebaseFirestore db;
     private static final String COLLECTION_ORDERS = "orders";
+    public static final int DEFAULT_PAGE_SIZE = 15;
+    private static final int MAX_BATCH_WRITES = 500; // Firestore's limit per WriteBatch
+    // Cloud Function that prices, reserves stock for and writes an order (functions/index.js)
+    private static final String FUNCTION_PLACE_ORDER = "placeOrder";
+
+    private final FirebaseFunctions functions;
+
+    // Every run of a placement transaction on the server, including the retries after contention
+    private final AtomicLong transactionAttempts = new AtomicLong();
 
     public OrderRepository() {
         try {
             this.db = FirebaseManager.getInstance().getDb();
+            this.functions = FirebaseFunctions.getInstance();
             Log.d(TAG, "OrderRepository initialized successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error initializing OrderRepository", e);
@@ -26,39 +47,116 @@ public class OrderRepository {
         }
     }
 
-    // Create a new order
-    public Task<String> createOrder(Order order) {
-        try {
-            if (order == null) {
-                Log.e(TAG, "Order is null");
-                return Tasks.forException(new IllegalArgumentException("Order cannot be null"));
+    // For tests against the Firebase emulators
+    OrderRepository(FirebaseFirestore db, FirebaseFunctions functions) {
+        this.db = db;
+        this.functions = functions;
+    }
+
+    /**
+     * A fresh order id, generated on the device. Assign it before the first attempt and keep
+     * it across retries: it is the order's idempotency key.
+     */
+    public String newOrderId() {
+        return db.collection(COLLECTION_ORDERS).document().getId();
+    }
+
+    /**
+     * Place an order through the placeOrder Cloud Function, which re-prices every line from
+     * the product documents and config/pricing, takes the items out of stock and writes the
+     * order in one transaction, so two buyers can never both get the last unit and no client
+     * can write an order at prices of its choosing. Fails with InsufficientStockException if
+     * any product doesn't have enough stock left, or with PriceChangedException if a product
+     * (or the total) no longer costs what the order says; nothing is written then.
+     * If the order already has an id and an order with that id exists, it was placed by an
+     * earlier attempt and this one succeeds without writing anything.
+     */
+    public Task<String> placeOrderAtomically(Order order) {
+        if (order == null || order.getItems() == null || order.getItems().isEmpty()) {
+            return Tasks.forException(new IllegalArgumentException("Order has no items"));
+        }
+        if (order.getOrderId() == null) {
+            order.setOrderId(newOrderId());
+        }
+        String orderId = order.getOrderId();
+
+        List<Map<String, Object>> items = new ArrayList<>(order.getItems().size());
+        for (Order.OrderItem item : order.getItems()) {
+            Map<String, Object> line = new HashMap<>();
+            line.put("productId", item.getProductId());
+            line.put("productName", item.getProductName());
+            line.put("quantity", item.getQuantity());
+            line.put("price", item.getPrice());
+            line.put("imageUrl", item.getImageUrl());
+            items.add(line);
+        }
+        Map<String, Object> request = new HashMap<>();
+        request.put("orderId", orderId);
+        request.put("items", items);
+        request.put("totalAmount", order.getTotalAmount());
+        request.put("couponCode", order.getCouponCode());
+        request.put("deliveryAddress", order.getDeliveryAddress());
+        request.put("paymentMethod", order.getPaymentMethod());
+        request.put("paid", order.isPaid());
+        if (order.getOrderDate() != null) {
+            request.put("orderDate", order.getOrderDate().getTime());
+        }
+
+        return functions.getHttpsCallable(FUNCTION_PLACE_ORDER).call(request).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                Exception e = toPlacementException(task.getException());
+                Log.e(TAG, "Error placing order", e);
+                if (e != null) {
+                    throw e;
+                }
+                throw new Exception("Unknown error placing order");
+            }
+            Object data = task.getResult().getData();
+            if (data instanceof Map && ((Map<?, ?>) data).get("attempts") instanceof Number) {
+                transactionAttempts.addAndGet(((Number) ((Map<?, ?>) data).get("attempts")).longValue());
+            }
+            // Stock shown from the cache would now be too high
+            for (Order.OrderItem item : order.getItems()) {
+                CatalogCache.getInstance().invalidate(ProductRepository.stockCacheKey(item.getProductId()));
             }
+            Log.d(TAG, "Order placed with stock reserved: " + orderId);
+            return orderId;
+        });
+    }
 
-            String orderId = db.collection(COLLECTION_ORDERS).document().getId();
-            order.setOrderId(orderId);
-
-            Log.d(TAG, "Creating order with ID: " + orderId);
-
-            return db.collection(COLLECTION_ORDERS)
-                    .document(orderId)
-                    .set(order)
-                    .continueWith(task -> {
-                        if (task.isSuccessful()) {
-                            Log.d(TAG, "Order created successfully: " + orderId);
-                            return orderId;
-                        } else {
-                            Exception e = task.getException();
-                            Log.e(TAG, "Error creating order", e);
-                            if (e != null) {
-                                throw e;
-                            }
-                            throw new Exception("Unknown error creating order");
-                        }
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "Exception in createOrder", e);
-            return Tasks.forException(e);
+    /**
+     * Turn the function's rejections (details.reason, see functions/index.js) back into
+     * the exceptions checkout and the outbox handle
+     */
+    private static Exception toPlacementException(Exception e) {
+        if (!(e instanceof FirebaseFunctionsException)) return e;
+        Object details = ((FirebaseFunctionsException) e).getDetails();
+        if (!(details instanceof Map)) return e;
+        Map<?, ?> map = (Map<?, ?>) details;
+        Object reason = map.get("reason");
+        String productId = map.get("productId") instanceof String ? (String) map.get("productId") : null;
+        String productName = map.get("productName") instanceof String ? (String) map.get("productName") : null;
+        if ("INSUFFICIENT_STOCK".equals(reason)) {
+            return new InsufficientStockException(productId, productName, number(map.get("available")).intValue());
         }
+        if ("PRICE_CHANGED".equals(reason)) {
+            return new PriceChangedException(productId, productName, number(map.get("price")).doubleValue());
+        }
+        if ("TOTAL_CHANGED".equals(reason)) {
+            return new PriceChangedException(number(map.get("total")).doubleValue());
+        }
+        return e;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+
+    /**
+     * Placement transactions the server ran so far (attempts minus placements = retries after contention)
+     */
+    public long getTransactionAttemptCount() {
+        return transactionAttempts.get();
     }
 
     // Get all orders for a user
@@ -70,7 +168,7 @@ public class OrderRepository {
                 .continueWith(task -> {
                     List<Order> orders = new ArrayList<>();
                     if (task.isSuccessful() && task.getResult() != null) {
-                        orders = task.getResult().toObjects(Order.class);
+                        orders = Codecs.decodeAll(task.getResult(), OrderCodec.INSTANCE);
                         Log.d(TAG, "Orders fetched for user: " + orders.size());
                     } else {
                         Log.e(TAG, "Error getting orders", task.getException());
@@ -79,6 +177,70 @@ public class OrderRepository {
                 });
     }
 
+    /**
+     * One page of a user's orders, newest first (needs the userId + orderDate
+     * composite index in firestore.indexes.json). Pass null as the cursor for the
+     * first page, then the previous page's cursor. Source.CACHE answers from the
+     * on-device copy of earlier reads without touching the network.
+     */
+    public Task<Page<Order>> getUserOrdersPage(String userId, int pageSize, DocumentSnapshot cursor, Source source) {
+        Query query = db.collection(COLLECTION_ORDERS)
+                .whereEqualTo("userId", userId)
+                .orderBy("orderDate", Query.Direction.DESCENDING);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+        // One extra document tells us whether another page exists without a second round trip
+        return query.limit(pageSize + 1)
+                .get(source)
+                .continueWith(task -> {
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        Exception e = task.getException();
+                        Log.e(TAG, "Error getting orders page", e);
+                        if (e != null) {
+                            throw e;
+                        }
+                        throw new Exception("Unknown error getting orders page");
+                    }
+                    List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                    boolean hasMore = documents.size() > pageSize;
+                    List<DocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, pageSize) : documents;
+
+                    List<Order> orders = new ArrayList<>(pageDocuments.size());
+                    for (DocumentSnapshot document : pageDocuments) {
+                        Order order = Codecs.decode(document, OrderCodec.INSTANCE);
+                        if (order != null) orders.add(order);
+                    }
+                    DocumentSnapshot last = pageDocuments.isEmpty() ? null
+                            : pageDocuments.get(pageDocuments.size() - 1);
+                    return new Page<>(orders, last, hasMore);
+                });
+    }
+
+    /**
+     * Number of a user's orders in any of the given statuses (all orders if statuses is empty),
+     * counted by the server so the totals don't depend on how many pages are loaded
+     */
+    public Task<Long> getUserOrderCount(String userId, List<String> statuses) {
+        Query query = db.collection(COLLECTION_ORDERS).whereEqualTo("userId", userId);
+        if (!statuses.isEmpty()) {
+            query = query.whereIn("status", statuses);
+        }
+        return query.count()
+                .get(AggregateSource.SERVER)
+                .continueWith(task -> {
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        Exception e = task.getException();
+                        Log.e(TAG, "Error counting orders", e);
+                        if (e != null) {
+                            throw e;
+                        }
+                        throw new Exception("Unknown error counting orders");
+                    }
+                    return task.getResult().getCount();
+                });
+    }
+
     // Get order by ID
     public Task<Order> getOrderById(String orderId) {
         return db.collection(COLLECTION_ORDERS)
@@ -86,7 +248,7 @@ public class OrderRepository {
                 .get()
                 .continueWith(task -> {
                     if (task.isSuccessful() && task.getResult() != null) {
-                        return task.getResult().toObject(Order.class);
+                        return Codecs.decode(task.getResult(), OrderCodec.INSTANCE);
                     }
                     return null;
                 });
@@ -99,6 +261,23 @@ public class OrderRepository {
                 .update("status", status);
     }
 
+    /**
+     * Apply the same field updates to many orders, in WriteBatch commits of up to 500 writes.
+     * Each batch is atomic on its own; the Task fails if any batch fails.
+     */
+    public Task<Void> updateOrders(List<String> orderIds, Map<String, Object> updates) {
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int i = 0; i < orderIds.size(); i += MAX_BATCH_WRITES) {
+            WriteBatch batch = db.batch();
+            for (String orderId : orderIds.subList(i, Math.min(i + MAX_BATCH_WRITES, orderIds.size()))) {
+                batch.update(db.collection(COLLECTION_ORDERS).document(orderId), updates);
+            }
+            commits.add(batch.commit());
+        }
+        Log.d(TAG, "Updating " + orderIds.size() + " orders in " + commits.size() + " batches");
+        return Tasks.whenAll(commits);
+    }
+
     // Cancel order
     public Task<Void> cancelOrder(String orderId) {
         return updateOrderStatus(orderId, "cancelled");
@@ -0,0 +1,164 @@
+package com.grocerygo.firebase;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.OrderCodec;
+import com.grocerygo.models.Order;
+import com.grocerygo.utils.OrderIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OrderStore - Live, in-memory copy of an order query kept up to date by a snapshot listener
+ * The first snapshot loads every order once; after that only the DocumentChange deltas
+ * (ADDED/MODIFIED/REMOVED) are applied to an OrderIndex, so a write costs one change
+ * instead of a reload.
+ * Local writes show up immediately through Firestore's latency compensation.
+ * All callbacks run on the main thread.
+ */
+public class OrderStore {
+    private static final String TAG = "OrderStore";
+
+    private final Query query;
+    private final Listener listener;
+
+    private final OrderIndex index = new OrderIndex();
+
+    private ListenerRegistration registration;
+    private boolean loaded = false;
+
+    public OrderStore(Query query, Listener listener) {
+        this.query = query;
+        this.listener = listener;
+    }
+
+    /**
+     * Every order, newest first, for the admin panel
+     */
+    public static Query allOrdersQuery() {
+        return FirebaseManager.getInstance().getDb()
+                .collection("orders")
+                .orderBy("orderDate", Query.Direction.DESCENDING);
+    }
+
+    public void start() {
+        if (registration != null) return;
+        registration = query.addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error listening to orders", error);
+                listener.onOrdersError(error);
+                return;
+            }
+            if (snapshot != null) {
+                applySnapshot(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Stop listening. The next start() reloads from scratch, since changes made
+     * while stopped are not delivered as deltas.
+     */
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        loaded = false;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * The orders received so far, bucketed by status (live, newest first)
+     */
+    public OrderIndex getIndex() {
+        return index;
+    }
+
+    private void applySnapshot(QuerySnapshot snapshot) {
+        if (!loaded) {
+            index.clear();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                index.put(Codecs.decode(change.getDocument(), OrderCodec.INSTANCE));
+            }
+            loaded = true;
+            Log.d(TAG, "Orders loaded: " + index.getCount());
+            listener.onOrdersLoaded(index);
+            return;
+        }
+
+        List<Change> changes = new ArrayList<>(snapshot.getDocumentChanges().size());
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            Order current = Codecs.decode(change.getDocument(), OrderCodec.INSTANCE);
+            Order previous = index.get(current.getOrderId());
+
+            // Positions are recorded as each step happens, so replaying them in order
+            // (remove, then insert, change by change) reproduces the buckets exactly
+            int previousPosition = index.remove(current.getOrderId());
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                changes.add(new Change(previous, previousPosition, null, -1));
+            } else {
+                int currentPosition = index.put(current);
+                changes.add(new Change(previous, previousPosition, current, currentPosition));
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            Log.d(TAG, "Applied " + changes.size() + " order changes");
+            listener.onOrdersChanged(changes);
+        }
+    }
+
+    /**
+     * One order that changed. previous is null for a new order, current is null for a removed one.
+     * Positions are within the status bucket of that version of the order (-1 when it is null).
+     */
+    public static class Change {
+        private final Order previous;
+        private final int previousPosition;
+        private final Order current;
+        private final int currentPosition;
+
+        Change(Order previous, int previousPosition, Order current, int currentPosition) {
+            this.previous = previous;
+            this.previousPosition = previousPosition;
+            this.current = current;
+            this.currentPosition = currentPosition;
+        }
+
+        public Order getPrevious() {
+            return previous;
+        }
+
+        public int getPreviousPosition() {
+            return previousPosition;
+        }
+
+        public Order getCurrent() {
+            return current;
+        }
+
+        public int getCurrentPosition() {
+            return currentPosition;
+        }
+    }
+
+    public interface Listener {
+        /** First snapshot after start() */
+        void onOrdersLoaded(OrderIndex index);
+
+        /** Deltas from one later snapshot, in the order they were applied */
+        void onOrdersChanged(List<Change> changes);
+
+        void onOrdersError(Exception e);
+    }
+}
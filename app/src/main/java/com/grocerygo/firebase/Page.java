@@ -0,0 +1,35 @@
+package com.grocerygo.firebase;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page - One page of a cursor-paginated Firestore query
+ * Pass getCursor() back to the repository to fetch the page after this one.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final DocumentSnapshot cursor;
+    private final boolean hasMore;
+
+    public Page(List<T> items, DocumentSnapshot cursor, boolean hasMore) {
+        this.items = items;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null, false);
+    }
+
+    public List<T> getItems() { return items; }
+
+    /**
+     * Last document of this page, or null if the page is empty
+     */
+    public DocumentSnapshot getCursor() { return cursor; }
+
+    public boolean hasMore() { return hasMore; }
+}
@@ -0,0 +1,37 @@
+package com.grocerygo.firebase;
+
+import java.util.Locale;
+
+/**
+ * PriceChangedException - A product's price (or the order total) changed after the order was priced
+ * Thrown by OrderRepository.placeOrderAtomically; nothing was written.
+ */
+public class PriceChangedException extends Exception {
+    private final String productId;
+    private final String productName;
+    private final double currentPrice;
+
+    public PriceChangedException(String productId, String productName, double currentPrice) {
+        super(String.format(Locale.getDefault(), "The price of %s has changed to ₹%.2f",
+                productName != null ? productName : productId, currentPrice));
+        this.productId = productId;
+        this.productName = productName;
+        this.currentPrice = currentPrice;
+    }
+
+    /**
+     * No single line changed, but the order total did (e.g. new tax or promotion rules)
+     */
+    public PriceChangedException(double currentTotal) {
+        super(String.format(Locale.getDefault(), "Your order total has changed to ₹%.2f", currentTotal));
+        this.productId = null;
+        this.productName = null;
+        this.currentPrice = currentTotal;
+    }
+
+    public String getProductId() { return productId; }
+
+    public String getProductName() { return productName; }
+
+    public double getCurrentPrice() { return currentPrice; }
+}
@@ -0,0 +1,124 @@
+package com.grocerygo.firebase;
+
+import com.grocerygo.models.CartItem;
+import com.grocerygo.models.Order;
+import com.grocerygo.pricing.PriceBreakdown;
+import com.grocerygo.pricing.PricedLines;
+import com.grocerygo.pricing.PricingPlan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PriceCheck - Checkout lines re-priced at the products' current server prices
+ * Totals come from the PricingPlan applied to those prices (unavailable lines count
+ * as zero), in whole paise, so the same cart always produces the same total.
+ */
+public class PriceCheck implements PricedLines {
+    private final List<Line> lines;
+    private final List<Line> changedLines;
+    private final PriceBreakdown breakdown = new PriceBreakdown();
+
+    PriceCheck(List<Line> lines, PricingPlan plan, String couponCode) {
+        this.lines = Collections.unmodifiableList(lines);
+        List<Line> changed = new ArrayList<>();
+        for (Line line : lines) {
+            if (line.status != Line.Status.UNCHANGED) {
+                changed.add(line);
+            }
+        }
+        this.changedLines = Collections.unmodifiableList(changed);
+        plan.price(this, couponCode, breakdown);
+    }
+
+    public List<Line> getLines() { return lines; }
+
+    /**
+     * Lines whose price changed or that can no longer be bought, in cart order
+     */
+    public List<Line> getChangedLines() { return changedLines; }
+
+    public boolean hasChanges() { return !changedLines.isEmpty(); }
+
+    public boolean hasUnavailable() {
+        for (Line line : changedLines) {
+            if (line.status == Line.Status.UNAVAILABLE) return true;
+        }
+        return false;
+    }
+
+    public PriceBreakdown getBreakdown() { return breakdown; }
+
+    public double getSubtotal() { return breakdown.getSubtotal(); }
+
+    public double getDeliveryFee() { return breakdown.getDeliveryFee(); }
+
+    public double getTax() { return breakdown.getTax(); }
+
+    public double getDiscount() { return breakdown.getDiscount(); }
+
+    public double getTotal() { return breakdown.getTotal(); }
+
+    @Override
+    public int getLineCount() { return lines.size(); }
+
+    @Override
+    public long getUnitPricePaise(int line) { return lines.get(line).currentPricePaise; }
+
+    @Override
+    public int getQuantity(int line) {
+        Line priced = lines.get(line);
+        return priced.status == Line.Status.UNAVAILABLE ? 0 : priced.item.getQuantity();
+    }
+
+    @Override
+    public String getCategoryId(int line) { return lines.get(line).categoryId; }
+
+    /**
+     * Order items at the current prices (unavailable lines are left out)
+     */
+    public List<Order.OrderItem> toOrderItems() {
+        List<Order.OrderItem> items = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            if (line.status == Line.Status.UNAVAILABLE) continue;
+            CartItem item = line.item;
+            items.add(new Order.OrderItem(item.getProductId(), item.getProductName(),
+                    item.getQuantity(), line.getCurrentPrice(), item.getProductImage()));
+        }
+        return items;
+    }
+
+    private static double toRupees(long paise) {
+        return paise / 100.0;
+    }
+
+    /**
+     * One cart line with the price it was added at and the price it costs now
+     */
+    public static class Line {
+        public enum Status { UNCHANGED, PRICE_CHANGED, UNAVAILABLE }
+
+        private final CartItem item;
+        private final String categoryId;
+        private final long cartPricePaise;
+        private final long currentPricePaise;
+        private final Status status;
+
+        Line(CartItem item, String categoryId, long currentPricePaise, Status status) {
+            this.item = item;
+            this.categoryId = categoryId;
+            this.cartPricePaise = PriceBreakdown.toPaise(item.getProductPrice());
+            this.currentPricePaise = currentPricePaise;
+            this.status = status;
+        }
+
+        public CartItem getItem() { return item; }
+
+        public Status getStatus() { return status; }
+
+        public double getCartPrice() { return toRupees(cartPricePaise); }
+
+        public double getCurrentPrice() { return toRupees(currentPricePaise); }
+    }
+}
@@ -0,0 +1,107 @@
+package com.grocerygo.firebase;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.grocerygo.models.CartItem;
+import com.grocerygo.pricing.PriceBreakdown;
+import com.grocerygo.pricing.PricingEngine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PriceValidator - Checks checkout lines against the products' current prices on the server
+ * Cart prices come from the saved cart and can be days old. Before an order is written its
+ * products are read straight from the server (never the CatalogCache or the offline cache)
+ * in whereIn batches that all run at once, so a 50-line cart costs 5 parallel queries.
+ */
+public class PriceValidator {
+    private static final String TAG = "PriceValidator";
+    private static final String COLLECTION_PRODUCTS = "products";
+    private static final int MAX_IN_VALUES = 10; // Firestore's limit on values in a whereIn filter
+
+    private final FirebaseFirestore db;
+
+    public PriceValidator() {
+        this(FirebaseManager.getInstance().getDb());
+    }
+
+    PriceValidator(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Re-price the lines and total them with the current PricingPlan. Fails if the server
+     * can't be reached, since the prices can't be trusted without it.
+     * couponCode must be normalized (PricingPlan.normalizeCouponCode) or null.
+     */
+    public Task<PriceCheck> validate(List<CartItem> items, String couponCode) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for (CartItem item : items) {
+            unique.add(item.getProductId());
+        }
+        List<String> productIds = new ArrayList<>(unique);
+
+        List<Task<QuerySnapshot>> batches = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i += MAX_IN_VALUES) {
+            List<String> batch = new ArrayList<>(productIds.subList(i, Math.min(i + MAX_IN_VALUES, productIds.size())));
+            batches.add(db.collection(COLLECTION_PRODUCTS)
+                    .whereIn(FieldPath.documentId(), batch)
+                    .get(Source.SERVER));
+        }
+
+        long start = System.nanoTime();
+        return Tasks.<QuerySnapshot>whenAllSuccess(batches).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                Exception e = task.getException();
+                Log.e(TAG, "Error getting current prices", e);
+                if (e != null) throw e;
+                throw new Exception("Unknown error getting current prices");
+            }
+
+            Map<String, DocumentSnapshot> products = new HashMap<>(productIds.size() * 2);
+            for (QuerySnapshot batch : task.getResult()) {
+                for (DocumentSnapshot product : batch.getDocuments()) {
+                    products.put(product.getId(), product);
+                }
+            }
+
+            List<PriceCheck.Line> lines = new ArrayList<>(items.size());
+            for (CartItem item : items) {
+                lines.add(reprice(item, products.get(item.getProductId())));
+            }
+            PriceCheck check = new PriceCheck(lines, PricingEngine.getInstance().getPlan(), couponCode);
+            Log.d(TAG, "Validated " + items.size() + " lines in " + batches.size() + " batches, "
+                    + check.getChangedLines().size() + " changed, "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+            return check;
+        });
+    }
+
+    private static PriceCheck.Line reprice(CartItem item, DocumentSnapshot product) {
+        Double price = product != null ? product.getDouble("price") : null;
+        Boolean available = product != null ? product.getBoolean("available") : null;
+        if (price == null || Boolean.FALSE.equals(available)) {
+            return new PriceCheck.Line(item, item.getCategoryId(), PriceBreakdown.toPaise(item.getProductPrice()),
+                    PriceCheck.Line.Status.UNAVAILABLE);
+        }
+        // The server's category decides category discounts, not what the cart remembered
+        String categoryId = product.getString("categoryId");
+        long currentPaise = PriceBreakdown.toPaise(price);
+        PriceCheck.Line.Status status = currentPaise == PriceBreakdown.toPaise(item.getProductPrice())
+                ? PriceCheck.Line.Status.UNCHANGED
+                : PriceCheck.Line.Status.PRICE_CHANGED;
+        return new PriceCheck.Line(item, categoryId != null ? categoryId : item.getCategoryId(),
+                currentPaise, status);
+    }
+}
@@ -3,173 +3,400 @@ package com.grocerygo.firebase;
 import android.util.Log;
 
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.ProductCodec;
 import com.grocerygo.models.Product;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ProductRepository {
     private static final String TAG = "ProductRepository";
     private final FirebaseFirestore db;
     private static final String COLLECTION_PRODUCTS = "products";
+    private static final String COLLECTION_CATEGORIES = "categories";
+    private static final String FIELD_PRODUCT_COUNT = "productCount";
+    // Firestore's limit on values in a whereIn filter
+    private static final int MAX_IN_VALUES = 10;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    // Prefix of every CatalogCache key owned by this repository
+    static final String CACHE_PREFIX = "products:";
+
+    private final CatalogCache cache;
 
     public ProductRepository() {
         this.db = FirebaseManager.getInstance().getDb();
+        this.cache = CatalogCache.getInstance();
     }
 
-    // Get all products
-    public Task<List<Product>> getAllProducts() {
-        return db.collection(COLLECTION_PRODUCTS)
+    /**
+     * One page of products matching the query, ordered by document ID.
+     * Pass null as the cursor for the first page, then the previous page's cursor.
+     * Arbitrary queries can't be keyed, so this one always reads from Firestore.
+     */
+    public Task<Page<Product>> getProducts(Query query, int pageSize, DocumentSnapshot cursor) {
+        // Document ID order is stable and needs no extra index, even under an equality filter
+        Query paged = query.orderBy(FieldPath.documentId());
+        if (cursor != null) {
+            paged = paged.startAfter(cursor);
+        }
+        // One extra document tells us whether another page exists without a second round trip
+        return paged.limit(pageSize + 1)
                 .get()
                 .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        products = task.getResult().toObjects(Product.class);
-                        Log.d(TAG, "Products fetched: " + products.size());
-                    } else {
-                        Log.e(TAG, "Error getting products", task.getException());
+                    QuerySnapshot snapshot = resultOrThrow(task, "Error getting products page");
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    boolean hasMore = documents.size() > pageSize;
+                    List<DocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, pageSize) : documents;
+
+                    List<Product> products = new ArrayList<>(pageDocuments.size());
+                    for (DocumentSnapshot document : pageDocuments) {
+                        Product product = Codecs.decode(document, ProductCodec.INSTANCE);
+                        if (product != null) products.add(product);
                     }
-                    return products;
+                    DocumentSnapshot last = pageDocuments.isEmpty() ? null
+                            : pageDocuments.get(pageDocuments.size() - 1);
+                    return new Page<>(Collections.unmodifiableList(products), last, hasMore);
                 });
     }
 
+    // Get a page of all products
+    public Task<Page<Product>> getProductsPage(int pageSize, DocumentSnapshot cursor) {
+        return cache.get(pageKey("all", pageSize, cursor),
+                () -> getProducts(db.collection(COLLECTION_PRODUCTS), pageSize, cursor));
+    }
+
+    // Get a page of products by category ID
+    public Task<Page<Product>> getProductsByCategoryIdPage(String categoryId, int pageSize, DocumentSnapshot cursor) {
+        return cache.get(pageKey("categoryId=" + categoryId, pageSize, cursor),
+                () -> getProducts(db.collection(COLLECTION_PRODUCTS).whereEqualTo("categoryId", categoryId),
+                        pageSize, cursor));
+    }
+
+    // Get all products (reads the whole collection - prefer getProductsPage)
+    public Task<List<Product>> getAllProducts() {
+        return cachedList(CACHE_PREFIX + "all", db.collection(COLLECTION_PRODUCTS),
+                "Error getting products");
+    }
+
     // Get products by category
     public Task<List<Product>> getProductsByCategory(String category) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .whereEqualTo("category", category)
-                .get()
-                .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        products = task.getResult().toObjects(Product.class);
-                    }
-                    return products;
-                });
+        return cachedList(CACHE_PREFIX + "category=" + category,
+                db.collection(COLLECTION_PRODUCTS).whereEqualTo("category", category),
+                "Error getting products by category");
     }
 
-    // Get products by category ID
+    // Get products by category ID (reads every match - prefer getProductsByCategoryIdPage)
     public Task<List<Product>> getProductsByCategoryId(String categoryId) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .whereEqualTo("categoryId", categoryId)
-                .get()
-                .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        products = task.getResult().toObjects(Product.class);
-                        Log.d(TAG, "Products fetched for category " + categoryId + ": " + products.size());
-                    } else {
-                        Log.e(TAG, "Error getting products by category ID", task.getException());
-                    }
-                    return products;
-                });
+        return cachedList(CACHE_PREFIX + "categoryId=" + categoryId,
+                db.collection(COLLECTION_PRODUCTS).whereEqualTo("categoryId", categoryId),
+                "Error getting products by category ID");
     }
 
     // Get product by ID
     public Task<Product> getProductById(String productId) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .document(productId)
-                .get()
-                .continueWith(task -> {
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        return task.getResult().toObject(Product.class);
-                    }
-                    return null;
-                });
+        return cache.get(CACHE_PREFIX + "id=" + productId, () -> db.collection(COLLECTION_PRODUCTS)
+                        .document(productId)
+                        .get()
+                        .continueWith(task -> Codecs.decode(
+                                resultOrThrow(task, "Error getting product " + productId), ProductCodec.INSTANCE)))
+                .continueWith(task -> task.isSuccessful() ? task.getResult() : null);
     }
 
     // Search products by name
     public Task<List<Product>> searchProducts(String query) {
         String searchEnd = query + "\uf8ff";
-        return db.collection(COLLECTION_PRODUCTS)
-                .orderBy("name")
-                .startAt(query)
-                .endAt(searchEnd)
-                .get()
-                .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        products = task.getResult().toObjects(Product.class);
-                    }
-                    return products;
-                });
+        return cachedList(CACHE_PREFIX + "search=" + query,
+                db.collection(COLLECTION_PRODUCTS).orderBy("name").startAt(query).endAt(searchEnd),
+                "Error searching products");
     }
 
     // Get featured/popular products
     public Task<List<Product>> getFeaturedProducts(int limit) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .limit(limit)
-                .get()
-                .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        // Get all products and filter available ones
-                        List<Product> allProducts = task.getResult().toObjects(Product.class);
-                        Log.d(TAG, "Total products fetched: " + allProducts.size());
-
-                        // Filter available products and sort by rating
-                        for (Product product : allProducts) {
-                            if (product.isAvailable()) {
-                                products.add(product);
+        return cache.get(CACHE_PREFIX + "featured=" + limit, () -> db.collection(COLLECTION_PRODUCTS)
+                        .limit(limit)
+                        .get()
+                        .continueWith(task -> {
+                            List<Product> allProducts = Codecs.decodeAll(
+                                    resultOrThrow(task, "Error getting featured products"), ProductCodec.INSTANCE);
+                            Log.d(TAG, "Total products fetched: " + allProducts.size());
+
+                            // Filter available products and sort by rating
+                            List<Product> products = new ArrayList<>();
+                            for (Product product : allProducts) {
+                                if (product.isAvailable()) {
+                                    products.add(product);
+                                }
                             }
-                        }
 
-                        // Sort by rating in descending order
-                        products.sort((p1, p2) -> Double.compare(p2.getRating(), p1.getRating()));
+                            // Sort by rating in descending order
+                            products.sort((p1, p2) -> Double.compare(p2.getRating(), p1.getRating()));
+
+                            // Limit results
+                            if (products.size() > limit) {
+                                products = products.subList(0, limit);
+                            }
+
+                            Log.d(TAG, "Featured products after filtering: " + products.size());
+                            return Collections.unmodifiableList(products);
+                        }))
+                .continueWith(task -> listOrEmpty(task));
+    }
+
+    /**
+     * Products with the given IDs, in the same order (IDs with no product are skipped).
+     * Products already held by a fresh CatalogCache entry resolve without a round trip;
+     * the rest are fetched in whereIn batches that all run at once.
+     */
+    public Task<List<Product>> getProductsByIds(List<String> productIds) {
+        Map<String, Product> resolved = cachedProductsById(productIds);
+
+        List<String> missing = new ArrayList<>();
+        for (String productId : productIds) {
+            if (!resolved.containsKey(productId) && !missing.contains(productId)) {
+                missing.add(productId);
+            }
+        }
+        Log.d(TAG, "Products by ID: " + resolved.size() + " from cache, " + missing.size() + " to fetch");
+
+        List<Task<List<Product>>> batches = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += MAX_IN_VALUES) {
+            List<String> batch = new ArrayList<>(missing.subList(i, Math.min(i + MAX_IN_VALUES, missing.size())));
+            batches.add(cache.get(CACHE_PREFIX + "ids=" + String.join(",", batch), () -> db.collection(COLLECTION_PRODUCTS)
+                    .whereIn(FieldPath.documentId(), batch)
+                    .get()
+                    .continueWith(task -> Collections.unmodifiableList(Codecs.decodeAll(
+                            resultOrThrow(task, "Error getting products by ID"), ProductCodec.INSTANCE)))));
+        }
 
-                        // Limit results
-                        if (products.size() > limit) {
-                            products = products.subList(0, limit);
+        return Tasks.<List<Product>>whenAllSuccess(batches)
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        Exception e = task.getException();
+                        if (e != null) {
+                            throw e;
+                        }
+                        throw new Exception("Unknown error getting products by ID");
+                    }
+                    for (List<Product> batch : task.getResult()) {
+                        for (Product product : batch) {
+                            resolved.put(product.getProductId(), product);
                         }
+                    }
 
-                        Log.d(TAG, "Featured products after filtering: " + products.size());
-                    } else {
-                        Log.e(TAG, "Error getting featured products", task.getException());
+                    List<Product> products = new ArrayList<>(productIds.size());
+                    for (String productId : productIds) {
+                        Product product = resolved.get(productId);
+                        if (product != null) {
+                            products.add(product);
+                        }
                     }
                     return products;
                 });
     }
 
-    // Get available products (simpler query without ordering)
-    public Task<List<Product>> getAvailableProducts(int limit) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .whereEqualTo("available", true)
-                .limit(limit)
+    /**
+     * Look the IDs up in every fresh product entry of the cache (single products, lists and pages)
+     */
+    private Map<String, Product> cachedProductsById(List<String> productIds) {
+        Set<String> wanted = new HashSet<>(productIds);
+        Map<String, Product> found = new HashMap<>();
+        for (Object value : cache.freshValues(CACHE_PREFIX)) {
+            Iterable<?> items;
+            if (value instanceof Page) {
+                items = ((Page<?>) value).getItems();
+            } else if (value instanceof List) {
+                items = (List<?>) value;
+            } else {
+                items = Collections.singletonList(value);
+            }
+            for (Object item : items) {
+                if (item instanceof Product && wanted.contains(((Product) item).getProductId())) {
+                    found.put(((Product) item).getProductId(), (Product) item);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Number of products in a category, counted by the server with an aggregate query
+     * (no product documents are downloaded). Failures are passed through to the caller.
+     */
+    public Task<Long> getProductCountByCategoryId(String categoryId) {
+        return cache.get(CACHE_PREFIX + "count:categoryId=" + categoryId, () -> db.collection(COLLECTION_PRODUCTS)
+                .whereEqualTo("categoryId", categoryId)
+                .count()
+                .get(AggregateSource.SERVER)
+                .continueWith(task -> resultOrThrow(task, "Error counting products for category " + categoryId)
+                        .getCount()));
+    }
+
+    /**
+     * Units in stock. Sharded products (see StockShards) are summed across their shards
+     * by a server-side aggregate; the rest just report stockQuantity. Placing an order
+     * drops the cached value for the products in it.
+     */
+    public Task<Long> getStockQuantity(String productId) {
+        return cache.get(stockCacheKey(productId), () -> db.collection(COLLECTION_PRODUCTS)
+                .document(productId)
                 .get()
-                .continueWith(task -> {
-                    List<Product> products = new ArrayList<>();
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        products = task.getResult().toObjects(Product.class);
-                        Log.d(TAG, "Available products fetched: " + products.size());
-                    } else {
-                        Log.e(TAG, "Error getting available products", task.getException());
+                .continueWithTask(task -> {
+                    DocumentSnapshot product = resultOrThrow(task, "Error getting stock for " + productId);
+                    Long shardCount = product.getLong(StockShards.FIELD_SHARD_COUNT);
+                    if (shardCount == null || shardCount <= 0) {
+                        Long stockQuantity = product.getLong("stockQuantity");
+                        return Tasks.forResult(stockQuantity != null ? stockQuantity : 0L);
                     }
-                    return products;
-                });
+                    AggregateField.Sum total = AggregateField.sum(StockShards.FIELD_COUNT);
+                    return StockShards.shards(db, productId)
+                            .aggregate(total)
+                            .get(AggregateSource.SERVER)
+                            .continueWith(sum -> {
+                                Long units = resultOrThrow(sum, "Error summing stock shards for " + productId)
+                                        .getLong(total);
+                                return units != null ? units : 0L;
+                            });
+                }));
+    }
+
+    static String stockCacheKey(String productId) {
+        return CACHE_PREFIX + "stock=" + productId;
+    }
+
+    // Get available products (simpler query without ordering)
+    public Task<List<Product>> getAvailableProducts(int limit) {
+        return cachedList(CACHE_PREFIX + "available=" + limit,
+                db.collection(COLLECTION_PRODUCTS).whereEqualTo("available", true).limit(limit),
+                "Error getting available products");
+    }
+
+    /**
+     * Read-through for a product list query. Failures aren't cached and
+     * surface as an empty list, as they always have for these methods.
+     */
+    private Task<List<Product>> cachedList(String key, Query query, String errorMessage) {
+        return cache.get(key, () -> query.get()
+                        .continueWith(task -> {
+                            List<Product> products = Codecs.decodeAll(
+                                    resultOrThrow(task, errorMessage), ProductCodec.INSTANCE);
+                            Log.d(TAG, "Products fetched for " + key + ": " + products.size());
+                            // Shared by every caller until it expires
+                            return Collections.unmodifiableList(products);
+                        }))
+                .continueWith(task -> listOrEmpty(task));
     }
 
-    // Add a new product (admin function)
+    private static String pageKey(String filter, int pageSize, DocumentSnapshot cursor) {
+        return CACHE_PREFIX + "page:" + filter + ":" + pageSize + ":" + (cursor != null ? cursor.getId() : "");
+    }
+
+    private static List<Product> listOrEmpty(Task<List<Product>> task) {
+        return task.isSuccessful() && task.getResult() != null ? task.getResult() : new ArrayList<>();
+    }
+
+    private static <T> T resultOrThrow(Task<T> task, String errorMessage) throws Exception {
+        if (task.isSuccessful() && task.getResult() != null) {
+            return task.getResult();
+        }
+        Exception e = task.getException();
+        Log.e(TAG, errorMessage, e);
+        if (e != null) {
+            throw e;
+        }
+        throw new Exception(errorMessage);
+    }
+
+    // Add a new product (admin function); bumps the category's denormalized productCount
     public Task<Void> addProduct(Product product) {
         String productId = db.collection(COLLECTION_PRODUCTS).document().getId();
         product.setProductId(productId);
-        return db.collection(COLLECTION_PRODUCTS)
-                .document(productId)
-                .set(product);
+
+        WriteBatch batch = db.batch();
+        batch.set(db.collection(COLLECTION_PRODUCTS).document(productId), product);
+        incrementProductCount(batch, product.getCategoryId(), 1);
+        return invalidateOnSuccess(batch.commit());
     }
 
-    // Update product
+    // Update product; moves it between category counts if its category changed
     public Task<Void> updateProduct(Product product) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .document(product.getProductId())
-                .set(product);
+        DocumentReference productRef = db.collection(COLLECTION_PRODUCTS).document(product.getProductId());
+        return invalidateOnSuccess(db.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(productRef);
+            String oldCategoryId = existing.exists() ? existing.getString("categoryId") : null;
+            String newCategoryId = product.getCategoryId();
+
+            // Merge: stockShards isn't on the model and must survive an edit
+            transaction.set(productRef, product, SetOptions.merge());
+            if (!existing.exists()) {
+                incrementProductCount(transaction, newCategoryId, 1);
+            } else if (oldCategoryId == null ? newCategoryId != null : !oldCategoryId.equals(newCategoryId)) {
+                incrementProductCount(transaction, oldCategoryId, -1);
+                incrementProductCount(transaction, newCategoryId, 1);
+            }
+            return null;
+        }));
     }
 
-    // Delete product
+    // Delete product and decrement its category's productCount
     public Task<Void> deleteProduct(String productId) {
-        return db.collection(COLLECTION_PRODUCTS)
-                .document(productId)
-                .delete();
+        DocumentReference productRef = db.collection(COLLECTION_PRODUCTS).document(productId);
+        return invalidateOnSuccess(db.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(productRef);
+            if (!existing.exists()) {
+                return null;
+            }
+            transaction.delete(productRef);
+            incrementProductCount(transaction, existing.getString("categoryId"), -1);
+            return null;
+        }));
+    }
+
+    /**
+     * Merge rather than update, so a missing category document doesn't fail the whole write
+     */
+    private void incrementProductCount(WriteBatch batch, String categoryId, long delta) {
+        if (categoryId == null || categoryId.isEmpty()) return;
+        batch.set(db.collection(COLLECTION_CATEGORIES).document(categoryId),
+                productCountDelta(delta), SetOptions.merge());
+    }
+
+    private void incrementProductCount(Transaction transaction, String categoryId, long delta) {
+        if (categoryId == null || categoryId.isEmpty()) return;
+        transaction.set(db.collection(COLLECTION_CATEGORIES).document(categoryId),
+                productCountDelta(delta), SetOptions.merge());
+    }
+
+    private static Map<String, Object> productCountDelta(long delta) {
+        return Collections.singletonMap(FIELD_PRODUCT_COUNT, FieldValue.increment(delta));
+    }
+
+    /**
+     * Drop cached product reads (and category counts) once a write has landed,
+     * so no screen shows the old catalog
+     */
+    private Task<Void> invalidateOnSuccess(Task<Void> write) {
+        return write.addOnSuccessListener(aVoid -> {
+            cache.invalidatePrefix(CACHE_PREFIX);
+            cache.invalidatePrefix(CategoryRepository.CACHE_PREFIX);
+        });
     }
 }
@@ -0,0 +1,101 @@
+package com.grocerygo.firebase;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SingleFlight - De-duplicates identical reads that are in flight at the same time
+ * The first caller for a key starts the read; everyone else asking for that key
+ * before it completes gets the same Task. Nothing is kept once the read completes,
+ * so later calls always see fresh data (use CatalogCache for that).
+ */
+public class SingleFlight {
+    private static SingleFlight instance;
+
+    // Guarded by "this"
+    private final Map<String, Task<?>> inFlight = new HashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    public SingleFlight() {}
+
+    /**
+     * Shared instance for Firestore reads across the app
+     */
+    public static synchronized SingleFlight getInstance() {
+        if (instance == null) {
+            instance = new SingleFlight();
+        }
+        return instance;
+    }
+
+    /**
+     * The in-flight Task for key, or a new one started with loader
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Task<T> run(String key, Loader<T> loader) {
+        Task<?> pending = inFlight.get(key);
+        if (pending != null) {
+            shared.incrementAndGet();
+            return (Task<T>) pending;
+        }
+
+        started.incrementAndGet();
+        Task<T> task = loader.load();
+        inFlight.put(key, task);
+        // Posted to the main thread once the read completes, never run inline
+        task.addOnCompleteListener(done -> {
+            synchronized (this) {
+                if (inFlight.get(key) == task) {
+                    inFlight.remove(key);
+                }
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Read a document, sharing the read with concurrent callers for the same path
+     */
+    public Task<DocumentSnapshot> get(DocumentReference document) {
+        return run("doc:" + document.getPath(), document::get);
+    }
+
+    /**
+     * Run a query, sharing it with concurrent callers that pass the same signature.
+     * Queries can't be keyed by themselves, so the signature must describe every
+     * filter, ordering and limit (e.g. "addresses?userId=u1&isDefault=true&limit=1").
+     */
+    public Task<QuerySnapshot> get(Query query, String signature) {
+        return run("query:" + signature, query::get);
+    }
+
+    /**
+     * Reads actually sent to Firestore
+     */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * Requests served by a read that another caller had already started
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * Starts the read for a key that has nothing in flight
+     */
+    public interface Loader<T> {
+        Task<T> load();
+    }
+}
@@ -0,0 +1,26 @@
+package com.grocerygo.firebase;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * StockShards - Layout of sharded stock counters
+ * A product with stockShards = N keeps its stock in products/{id}/stockShards/0..N-1,
+ * each holding part of the total in "count". Checkouts (the placeOrder Cloud Function, which
+ * must use the same layout) take from randomly chosen shards, so concurrent buyers of a bestseller mostly write to different documents instead of
+ * all contending on the product. The product's own stockQuantity is no longer updated
+ * once it is sharded; read the total with ProductRepository.getStockQuantity.
+ */
+public final class StockShards {
+    public static final String FIELD_SHARD_COUNT = "stockShards";
+    public static final String FIELD_COUNT = "count";
+    public static final int DEFAULT_SHARDS = 10;
+
+    private static final String COLLECTION_SHARDS = "stockShards";
+
+    private StockShards() {}
+
+    public static CollectionReference shards(FirebaseFirestore db, String productId) {
+        return db.collection("products").document(productId).collection(COLLECTION_SHARDS);
+    }
+}
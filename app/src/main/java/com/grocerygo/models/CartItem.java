@@ -8,6 +8,7 @@ public class CartItem {
     private String productImage;
     private double productPrice;
     private String productUnit;
+    private String categoryId;
     private int quantity;
     private double totalPrice;
 
@@ -68,6 +69,14 @@ public class CartItem {
         this.productUnit = productUnit;
     }
 
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(String categoryId) {
+        this.categoryId = categoryId;
+    }
+
     public int getQuantity() {
         return quantity;
     }
@@ -19,6 +19,7 @@ public class Order {
     private String assignedDeliveryPartner; // User ID of delivery partner
     private String deliveryPartnerName; // Name of delivery partner
     private boolean confirmed; // Admin confirmation
+    private String couponCode; // Normalized code the order was priced with, null if none
     @ServerTimestamp
     private Date orderDate;
     private Date deliveryDate;
@@ -80,6 +81,9 @@ public class Order {
     public boolean isConfirmed() { return confirmed; }
     public void setConfirmed(boolean confirmed) { this.confirmed = confirmed; }
 
+    public String getCouponCode() { return couponCode; }
+    public void setCouponCode(String couponCode) { this.couponCode = couponCode; }
+
     public Date getOrderDate() { return orderDate; }
     public void setOrderDate(Date orderDate) { this.orderDate = orderDate; }
 
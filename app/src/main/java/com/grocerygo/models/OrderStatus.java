@@ -0,0 +1,42 @@
+package com.grocerygo.models;
+
+import java.util.Locale;
+
+/**
+ * OrderStatus - The states an order moves through
+ * Orders store their status as a lower-case string; use of() to read it.
+ */
+public enum OrderStatus {
+    PENDING("pending"),
+    CONFIRMED("confirmed"),
+    SHIPPED("shipped"),
+    DELIVERED("delivered"),
+    CANCELLED("cancelled"),
+    // Missing or unrecognized status strings
+    UNKNOWN("unknown");
+
+    private final String value;
+
+    OrderStatus(String value) {
+        this.value = value;
+    }
+
+    /**
+     * The string stored in Firestore
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public static OrderStatus of(String value) {
+        if (value == null) return UNKNOWN;
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "pending": return PENDING;
+            case "confirmed": return CONFIRMED;
+            case "shipped": return SHIPPED;
+            case "delivered": return DELIVERED;
+            case "cancelled": return CANCELLED;
+            default: return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.grocerygo.pricing;
+
+import com.grocerygo.models.CartItem;
+
+import java.util.List;
+
+/**
+ * CartItemLines - PricedLines over a list of CartItems
+ * Keep one per screen and re-point it with wrap() before each pricing pass.
+ */
+public final class CartItemLines implements PricedLines {
+    private List<CartItem> items;
+
+    public CartItemLines wrap(List<CartItem> items) {
+        this.items = items;
+        return this;
+    }
+
+    @Override
+    public int getLineCount() {
+        return items != null ? items.size() : 0;
+    }
+
+    @Override
+    public long getUnitPricePaise(int line) {
+        return PriceBreakdown.toPaise(items.get(line).getProductPrice());
+    }
+
+    @Override
+    public int getQuantity(int line) {
+        return items.get(line).getQuantity();
+    }
+
+    @Override
+    public String getCategoryId(int line) {
+        return items.get(line).getCategoryId();
+    }
+}
@@ -0,0 +1,83 @@
+package com.grocerygo.pricing;
+
+/**
+ * PriceBreakdown - Result of pricing a cart, in whole paise
+ * Mutable so a screen can keep one and have PricingPlan overwrite it on every
+ * quantity change without allocating.
+ */
+public final class PriceBreakdown {
+    public enum CouponStatus { NONE, APPLIED, UNKNOWN, MIN_SUBTOTAL_NOT_MET }
+
+    private long subtotalPaise;
+    private long categoryDiscountPaise;
+    private long couponDiscountPaise;
+    private long deliveryFeePaise;
+    private long taxPaise;
+    private CouponStatus couponStatus = CouponStatus.NONE;
+    /** Minimum item total of the coupon that was tried (for MIN_SUBTOTAL_NOT_MET) */
+    private long couponMinSubtotalPaise;
+
+    /**
+     * Overwrite every field with a fresh result (PricingPlan.price)
+     */
+    void set(long subtotalPaise, long categoryDiscountPaise, long couponDiscountPaise,
+             long deliveryFeePaise, long taxPaise, CouponStatus couponStatus, long couponMinSubtotalPaise) {
+        this.subtotalPaise = subtotalPaise;
+        this.categoryDiscountPaise = categoryDiscountPaise;
+        this.couponDiscountPaise = couponDiscountPaise;
+        this.deliveryFeePaise = deliveryFeePaise;
+        this.taxPaise = taxPaise;
+        this.couponStatus = couponStatus;
+        this.couponMinSubtotalPaise = couponMinSubtotalPaise;
+    }
+
+    public long getSubtotalPaise() { return subtotalPaise; }
+
+    public long getCategoryDiscountPaise() { return categoryDiscountPaise; }
+
+    public long getCouponDiscountPaise() { return couponDiscountPaise; }
+
+    public long getDiscountPaise() { return categoryDiscountPaise + couponDiscountPaise; }
+
+    public long getDeliveryFeePaise() { return deliveryFeePaise; }
+
+    public long getTaxPaise() { return taxPaise; }
+
+    public long getTotalPaise() {
+        return getTotalBeforeTaxPaise() + taxPaise;
+    }
+
+    public long getTotalBeforeTaxPaise() {
+        return subtotalPaise - getDiscountPaise() + deliveryFeePaise;
+    }
+
+    /** Item total at list prices, before any discount */
+    public double getSubtotal() { return toRupees(subtotalPaise); }
+
+    public double getCategoryDiscount() { return toRupees(categoryDiscountPaise); }
+
+    public double getCouponDiscount() { return toRupees(couponDiscountPaise); }
+
+    /** Category and coupon discounts together */
+    public double getDiscount() { return toRupees(getDiscountPaise()); }
+
+    public double getDeliveryFee() { return toRupees(deliveryFeePaise); }
+
+    public double getTax() { return toRupees(taxPaise); }
+
+    public double getTotal() { return toRupees(getTotalPaise()); }
+
+    public double getTotalBeforeTax() { return toRupees(getTotalBeforeTaxPaise()); }
+
+    public CouponStatus getCouponStatus() { return couponStatus; }
+
+    public double getCouponMinSubtotal() { return toRupees(couponMinSubtotalPaise); }
+
+    public static long toPaise(double rupees) {
+        return Math.round(rupees * 100);
+    }
+
+    private static double toRupees(long paise) {
+        return paise / 100.0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.grocerygo.pricing;
+
+/**
+ * PricedLines - Indexed view of the lines being priced
+ * Read by index so PricingPlan can walk a cart without an iterator or per-line objects.
+ */
+public interface PricedLines {
+    int getLineCount();
+
+    long getUnitPricePaise(int line);
+
+    int getQuantity(int line);
+
+    /** May be null; lines without a category get no category discount */
+    String getCategoryId(int line);
+}
@@ -0,0 +1,60 @@
+package com.grocerygo.pricing;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.PricingRulesCodec;
+import com.grocerygo.firebase.FirebaseManager;
+
+/**
+ * PricingEngine - Holds the compiled PricingPlan every screen prices carts with
+ * Starts on the built-in rules (5% tax, ₹40 delivery below ₹500) and switches to the
+ * rules in config/pricing once refresh() has read them. Rules are compiled only when
+ * they are loaded, never while pricing.
+ */
+public class PricingEngine {
+    private static final String TAG = "PricingEngine";
+    private static final String COLLECTION_CONFIG = "config";
+    private static final String DOCUMENT_PRICING = "pricing";
+
+    private static PricingEngine instance;
+
+    private volatile PricingPlan plan = PricingPlan.compile(new PricingRules());
+
+    private PricingEngine() {}
+
+    public static synchronized PricingEngine getInstance() {
+        if (instance == null) {
+            instance = new PricingEngine();
+        }
+        return instance;
+    }
+
+    public PricingPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Reload the rules and compile them. On failure the current plan is kept,
+     * so the task always completes with the plan in use.
+     */
+    public Task<PricingPlan> refresh() {
+        return FirebaseManager.getInstance().getDb()
+                .collection(COLLECTION_CONFIG)
+                .document(DOCUMENT_PRICING)
+                .get()
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Error loading pricing rules, keeping current plan", task.getException());
+                        return plan;
+                    }
+                    DocumentSnapshot document = task.getResult();
+                    PricingRules rules = Codecs.decode(document, PricingRulesCodec.INSTANCE);
+                    plan = PricingPlan.compile(rules != null ? rules : new PricingRules());
+                    Log.d(TAG, rules != null ? "Pricing rules loaded" : "No pricing rules, using defaults");
+                    return plan;
+                });
+    }
+}
@@ -0,0 +1,159 @@
+package com.grocerygo.pricing;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PricingPlan - PricingRules compiled once into what pricing a cart needs
+ * Rates become basis points, amounts become paise, category discounts and coupons
+ * become hash lookups. price() then walks the lines with integer arithmetic only and
+ * allocates nothing, so it is cheap enough to run on every quantity tap.
+ * Immutable; PricingEngine swaps in a new plan when the rules change.
+ */
+public final class PricingPlan {
+    private static final long BASIS_POINTS = 10000;
+
+    private final long taxBasisPoints;
+    private final long deliveryFeePaise;
+    private final long freeDeliveryFromPaise;
+    private final Map<String, Long> categoryBasisPoints;
+    private final Map<String, CompiledCoupon> coupons;
+
+    private PricingPlan(long taxBasisPoints, long deliveryFeePaise, long freeDeliveryFromPaise,
+                        Map<String, Long> categoryBasisPoints, Map<String, CompiledCoupon> coupons) {
+        this.taxBasisPoints = taxBasisPoints;
+        this.deliveryFeePaise = deliveryFeePaise;
+        this.freeDeliveryFromPaise = freeDeliveryFromPaise;
+        this.categoryBasisPoints = categoryBasisPoints;
+        this.coupons = coupons;
+    }
+
+    public static PricingPlan compile(PricingRules rules) {
+        Map<String, Long> categories = new HashMap<>();
+        if (rules.getCategoryDiscounts() != null) {
+            for (PricingRules.CategoryDiscount discount : rules.getCategoryDiscounts()) {
+                if (discount == null || discount.getCategoryId() == null) continue;
+                long basisPoints = percentToBasisPoints(discount.getPercentOff());
+                Long existing = categories.get(discount.getCategoryId());
+                // Overlapping rules for one category don't stack; the best one wins
+                if (basisPoints > 0 && (existing == null || basisPoints > existing)) {
+                    categories.put(discount.getCategoryId(), basisPoints);
+                }
+            }
+        }
+
+        Map<String, CompiledCoupon> compiledCoupons = new HashMap<>();
+        if (rules.getCoupons() != null) {
+            for (PricingRules.Coupon coupon : rules.getCoupons()) {
+                String code = coupon != null ? normalizeCouponCode(coupon.getCode()) : null;
+                if (code == null) continue;
+                compiledCoupons.put(code, new CompiledCoupon(
+                        percentToBasisPoints(coupon.getPercentOff()),
+                        Math.max(0, PriceBreakdown.toPaise(coupon.getAmountOff())),
+                        Math.max(0, PriceBreakdown.toPaise(coupon.getMinSubtotal())),
+                        Math.max(0, PriceBreakdown.toPaise(coupon.getMaxDiscount())),
+                        coupon.isFreeDelivery()));
+            }
+        }
+
+        return new PricingPlan(
+                percentToBasisPoints(rules.getTaxPercent()),
+                Math.max(0, PriceBreakdown.toPaise(rules.getDeliveryFee())),
+                Math.max(0, PriceBreakdown.toPaise(rules.getFreeDeliveryThreshold())),
+                categories,
+                compiledCoupons);
+    }
+
+    /**
+     * Canonical form of a code as typed by the user (null if blank).
+     * Normalize once when the coupon is entered, not on every price() call.
+     */
+    public static String normalizeCouponCode(String code) {
+        if (code == null) return null;
+        String trimmed = code.trim();
+        return trimmed.isEmpty() ? null : trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    public boolean hasCoupon(String normalizedCode) {
+        return normalizedCode != null && coupons.containsKey(normalizedCode);
+    }
+
+    /**
+     * Price the lines into out, overwriting whatever it held.
+     * couponCode must already be normalized (see normalizeCouponCode), or null.
+     */
+    public void price(PricedLines lines, String couponCode, PriceBreakdown out) {
+        long subtotal = 0;
+        long categoryDiscount = 0;
+        boolean hasCategoryDiscounts = !categoryBasisPoints.isEmpty();
+        int count = lines.getLineCount();
+        for (int i = 0; i < count; i++) {
+            long lineTotal = lines.getUnitPricePaise(i) * lines.getQuantity(i);
+            subtotal += lineTotal;
+            if (hasCategoryDiscounts) {
+                String categoryId = lines.getCategoryId(i);
+                Long basisPoints = categoryId != null ? categoryBasisPoints.get(categoryId) : null;
+                if (basisPoints != null) {
+                    categoryDiscount += applyBasisPoints(lineTotal, basisPoints);
+                }
+            }
+        }
+
+        long itemTotal = subtotal - categoryDiscount;
+        boolean freeDelivery = itemTotal >= freeDeliveryFromPaise;
+        long couponDiscount = 0;
+        PriceBreakdown.CouponStatus couponStatus = PriceBreakdown.CouponStatus.NONE;
+        long couponMinSubtotal = 0;
+
+        if (couponCode != null) {
+            CompiledCoupon coupon = coupons.get(couponCode);
+            if (coupon == null) {
+                couponStatus = PriceBreakdown.CouponStatus.UNKNOWN;
+            } else if (itemTotal < coupon.minSubtotalPaise) {
+                couponStatus = PriceBreakdown.CouponStatus.MIN_SUBTOTAL_NOT_MET;
+                couponMinSubtotal = coupon.minSubtotalPaise;
+            } else {
+                long discount = applyBasisPoints(itemTotal, coupon.percentBasisPoints) + coupon.amountOffPaise;
+                if (coupon.maxDiscountPaise > 0) {
+                    discount = Math.min(discount, coupon.maxDiscountPaise);
+                }
+                couponDiscount = Math.min(discount, itemTotal);
+                couponStatus = PriceBreakdown.CouponStatus.APPLIED;
+                freeDelivery |= coupon.freeDelivery;
+            }
+        }
+
+        long deliveryFee = subtotal > 0 && !freeDelivery ? deliveryFeePaise : 0;
+        long tax = applyBasisPoints(itemTotal - couponDiscount, taxBasisPoints);
+        out.set(subtotal, categoryDiscount, couponDiscount, deliveryFee, tax, couponStatus, couponMinSubtotal);
+    }
+
+    private static long percentToBasisPoints(double percent) {
+        return Math.max(0, Math.min(BASIS_POINTS, Math.round(percent * 100)));
+    }
+
+    /**
+     * amount * basisPoints / 10000, rounded half up
+     */
+    private static long applyBasisPoints(long amountPaise, long basisPoints) {
+        return (amountPaise * basisPoints + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    private static final class CompiledCoupon {
+        final long percentBasisPoints;
+        final long amountOffPaise;
+        final long minSubtotalPaise;
+        final long maxDiscountPaise;
+        final boolean freeDelivery;
+
+        CompiledCoupon(long percentBasisPoints, long amountOffPaise, long minSubtotalPaise,
+                       long maxDiscountPaise, boolean freeDelivery) {
+            this.percentBasisPoints = percentBasisPoints;
+            this.amountOffPaise = amountOffPaise;
+            this.minSubtotalPaise = minSubtotalPaise;
+            this.maxDiscountPaise = maxDiscountPaise;
+            this.freeDelivery = freeDelivery;
+        }
+    }
+}
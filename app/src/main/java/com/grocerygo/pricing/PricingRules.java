@@ -0,0 +1,95 @@
+package com.grocerygo.pricing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PricingRules - Tax, delivery and promotion rules as stored in config/pricing
+ * Amounts are in rupees and rates in percent, as an admin would enter them.
+ * PricingPlan.compile turns them into the form checkout actually evaluates.
+ */
+public class PricingRules {
+    public static final double DEFAULT_TAX_PERCENT = 5;
+    public static final double DEFAULT_DELIVERY_FEE = 40;
+    public static final double DEFAULT_FREE_DELIVERY_THRESHOLD = 500;
+
+    private double taxPercent = DEFAULT_TAX_PERCENT;
+    private double deliveryFee = DEFAULT_DELIVERY_FEE;
+    private double freeDeliveryThreshold = DEFAULT_FREE_DELIVERY_THRESHOLD;
+    private List<CategoryDiscount> categoryDiscounts = new ArrayList<>();
+    private List<Coupon> coupons = new ArrayList<>();
+
+    public PricingRules() {}
+
+    public double getTaxPercent() { return taxPercent; }
+    public void setTaxPercent(double taxPercent) { this.taxPercent = taxPercent; }
+
+    public double getDeliveryFee() { return deliveryFee; }
+    public void setDeliveryFee(double deliveryFee) { this.deliveryFee = deliveryFee; }
+
+    /**
+     * Item total (after category discounts) from which delivery is free
+     */
+    public double getFreeDeliveryThreshold() { return freeDeliveryThreshold; }
+    public void setFreeDeliveryThreshold(double freeDeliveryThreshold) { this.freeDeliveryThreshold = freeDeliveryThreshold; }
+
+    public List<CategoryDiscount> getCategoryDiscounts() { return categoryDiscounts; }
+    public void setCategoryDiscounts(List<CategoryDiscount> categoryDiscounts) { this.categoryDiscounts = categoryDiscounts; }
+
+    public List<Coupon> getCoupons() { return coupons; }
+    public void setCoupons(List<Coupon> coupons) { this.coupons = coupons; }
+
+    /**
+     * Percentage off every item in one category
+     */
+    public static class CategoryDiscount {
+        private String categoryId;
+        private double percentOff;
+
+        public CategoryDiscount() {}
+
+        public CategoryDiscount(String categoryId, double percentOff) {
+            this.categoryId = categoryId;
+            this.percentOff = percentOff;
+        }
+
+        public String getCategoryId() { return categoryId; }
+        public void setCategoryId(String categoryId) { this.categoryId = categoryId; }
+
+        public double getPercentOff() { return percentOff; }
+        public void setPercentOff(double percentOff) { this.percentOff = percentOff; }
+    }
+
+    /**
+     * Coupon code: a percentage and/or flat amount off, optionally free delivery.
+     * maxDiscount of 0 means uncapped.
+     */
+    public static class Coupon {
+        private String code;
+        private double percentOff;
+        private double amountOff;
+        private double minSubtotal;
+        private double maxDiscount;
+        private boolean freeDelivery;
+
+        public Coupon() {}
+
+        public String getCode() { return code; }
+        public void setCode(String code) { this.code = code; }
+
+        public double getPercentOff() { return percentOff; }
+        public void setPercentOff(double percentOff) { this.percentOff = percentOff; }
+
+        public double getAmountOff() { return amountOff; }
+        public void setAmountOff(double amountOff) { this.amountOff = amountOff; }
+
+        public double getMinSubtotal() { return minSubtotal; }
+        public void setMinSubtotal(double minSubtotal) { this.minSubtotal = minSubtotal; }
+
+        public double getMaxDiscount() { return maxDiscount; }
+        public void setMaxDiscount(double maxDiscount) { this.maxDiscount = maxDiscount; }
+
+        public boolean isFreeDelivery() { return freeDelivery; }
+        public void setFreeDelivery(boolean freeDelivery) { this.freeDelivery = freeDelivery; }
+    }
+}
@@ -0,0 +1,248 @@
+package com.grocerygo.search;
+
+import com.grocerygo.models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ProductSearchIndex - In-memory n-gram index over a product catalog
+ * Normalizes the searchable fields once at build time and keeps postings
+ * as sorted int arrays, so a query never touches products that cannot match.
+ * Matching semantics are the same as a case-insensitive contains() on each field.
+ */
+public class ProductSearchIndex {
+    public static final int FIELD_NAME = 1;
+    public static final int FIELD_DESCRIPTION = 1 << 1;
+    public static final int FIELD_CATEGORY = 1 << 2;
+    public static final int FIELDS_ALL = FIELD_NAME | FIELD_DESCRIPTION | FIELD_CATEGORY;
+
+    // Grams of length 1..MAX_GRAM are indexed; longer queries are verified against the field text
+    private static final int MAX_GRAM = 3;
+    private static final int RESULT_CACHE_SIZE = 32;
+
+    private final Product[] products;
+    private final String[][] fieldTexts;
+    private final Map<String, int[]> postings;
+    private final int[] allIds;
+
+    // Normalized query -> matching ids, most recently used last
+    private final Map<String, int[]> resultCache =
+            new LinkedHashMap<String, int[]>(RESULT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                    return size() > RESULT_CACHE_SIZE;
+                }
+            };
+
+    public ProductSearchIndex(List<Product> productList) {
+        this(productList, FIELDS_ALL);
+    }
+
+    public ProductSearchIndex(List<Product> productList, int fields) {
+        int size = productList != null ? productList.size() : 0;
+        products = new Product[size];
+        fieldTexts = new String[size][];
+        allIds = new int[size];
+
+        Map<String, IntList> builders = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            Product product = productList.get(id);
+            products[id] = product;
+            allIds[id] = id;
+            fieldTexts[id] = normalizedFields(product, fields);
+
+            for (String text : fieldTexts[id]) {
+                addGrams(builders, text, id);
+            }
+        }
+
+        postings = new HashMap<>(builders.size() * 2);
+        for (Map.Entry<String, IntList> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Normalize text the same way for indexing and querying:
+     * lower-case and collapse runs of whitespace into a single space
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String lower = text.toLowerCase(Locale.getDefault()).trim();
+        StringBuilder sb = null;
+        boolean lastWasSpace = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            boolean isSpace = Character.isWhitespace(c);
+            if (isSpace && (lastWasSpace || c != ' ')) {
+                // Needs rewriting - copy what we have so far
+                if (sb == null) {
+                    sb = new StringBuilder(lower.length());
+                    sb.append(lower, 0, i);
+                }
+                if (!lastWasSpace) sb.append(' ');
+            } else if (sb != null) {
+                sb.append(c);
+            }
+            lastWasSpace = isSpace;
+        }
+        return sb != null ? sb.toString() : lower;
+    }
+
+    /**
+     * Ids of products whose indexed fields contain the query, in catalog order.
+     * An empty query matches every product. The returned array is shared and must not be modified.
+     */
+    public int[] searchIds(String query) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return allIds;
+        }
+
+        if (q.length() <= MAX_GRAM) {
+            // The gram posting is the exact answer
+            int[] ids = postings.get(q);
+            return ids != null ? ids : new int[0];
+        }
+
+        synchronized (resultCache) {
+            int[] cached = resultCache.get(q);
+            if (cached != null) {
+                return cached;
+            }
+
+            // Every hit of q also contains any substring of q, so the smallest such
+            // previous result (or trigram posting) is a complete candidate set
+            int[] candidates = narrowestCachedSubset(q);
+            for (int i = 0; i + MAX_GRAM <= q.length(); i++) {
+                int[] ids = postings.get(q.substring(i, i + MAX_GRAM));
+                if (ids == null) {
+                    candidates = new int[0];
+                    break;
+                }
+                if (candidates == null || ids.length < candidates.length) {
+                    candidates = ids;
+                }
+            }
+
+            int[] result = refineIds(candidates, q);
+            resultCache.put(q, result);
+            return result;
+        }
+    }
+
+    /**
+     * Smallest cached result whose query is contained in q, e.g. "bana" when q is "banan"
+     */
+    private int[] narrowestCachedSubset(String q) {
+        int[] narrowest = null;
+        for (Map.Entry<String, int[]> entry : resultCache.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() < q.length() && q.contains(key)
+                    && (narrowest == null || entry.getValue().length < narrowest.length)) {
+                narrowest = entry.getValue();
+            }
+        }
+        return narrowest;
+    }
+
+    /**
+     * Keep only the ids from a previous result whose fields contain the (already normalized) query
+     */
+    public int[] refineIds(int[] candidates, String normalizedQuery) {
+        int[] result = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            if (matches(id, normalizedQuery)) {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Products matching the query, in catalog order
+     */
+    public List<Product> search(String query) {
+        return getProducts(searchIds(query));
+    }
+
+    public List<Product> getProducts(int[] ids) {
+        if (ids.length == 0) return Collections.emptyList();
+        List<Product> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(products[id]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    private boolean matches(int id, String normalizedQuery) {
+        for (String text : fieldTexts[id]) {
+            if (text.contains(normalizedQuery)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] normalizedFields(Product product, int fields) {
+        List<String> texts = new ArrayList<>(3);
+        if ((fields & FIELD_NAME) != 0 && product.getName() != null) {
+            texts.add(normalize(product.getName()));
+        }
+        if ((fields & FIELD_DESCRIPTION) != 0 && product.getDescription() != null) {
+            texts.add(normalize(product.getDescription()));
+        }
+        if ((fields & FIELD_CATEGORY) != 0 && product.getCategory() != null) {
+            texts.add(normalize(product.getCategory()));
+        }
+        return texts.toArray(new String[0]);
+    }
+
+    private static void addGrams(Map<String, IntList> builders, String text, int id) {
+        for (int start = 0; start < text.length(); start++) {
+            int maxEnd = Math.min(text.length(), start + MAX_GRAM);
+            for (int end = start + 1; end <= maxEnd; end++) {
+                String gram = text.substring(start, end);
+                IntList list = builders.get(gram);
+                if (list == null) {
+                    list = new IntList();
+                    builders.put(gram, list);
+                }
+                list.addIfAbsent(id);
+            }
+        }
+    }
+
+    /**
+     * Growable int array used while building postings.
+     * Ids are added in increasing order, so a duplicate is always the last element.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfAbsent(int value) {
+            if (size > 0 && values[size - 1] == value) return;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
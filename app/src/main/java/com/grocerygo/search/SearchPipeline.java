@@ -0,0 +1,134 @@
+package com.grocerygo.search;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.grocerygo.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchPipeline - Sits between a search box and its adapter
+ * Coalesces keystrokes within a debounce window, matches on a background thread
+ * and only posts the result of the most recent query back to the main thread.
+ */
+public class SearchPipeline {
+    private static final String TAG = "SearchPipeline";
+    public static final long DEFAULT_DEBOUNCE_MS = 150;
+
+    // One worker shared by every pipeline keeps index builds and queries of a pipeline in order
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final long debounceMillis;
+    private final ResultListener listener;
+    private final AtomicLong generation = new AtomicLong();
+
+    // Only touched on the search worker
+    private ProductSearchIndex index;
+
+    private Runnable pendingDispatch;
+    private boolean released = false;
+
+    public SearchPipeline(ResultListener listener) {
+        this(DEFAULT_DEBOUNCE_MS, listener);
+    }
+
+    public SearchPipeline(long debounceMillis, ResultListener listener) {
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Replace the catalog being searched. The index is built on the search worker,
+     * so queries submitted afterwards always see it.
+     */
+    public void setCatalog(List<Product> products, int fields) {
+        List<Product> snapshot = new ArrayList<>(products);
+        SEARCH_EXECUTOR.execute(() -> index = new ProductSearchIndex(snapshot, fields));
+    }
+
+    /**
+     * Queue a query; it runs once no newer query arrives within the debounce window
+     */
+    public void submit(String query) {
+        schedule(query, debounceMillis);
+    }
+
+    /**
+     * Run a query without waiting for the debounce window (e.g. right after the catalog loads)
+     */
+    public void submitNow(String query) {
+        schedule(query, 0);
+    }
+
+    /**
+     * Drop any pending or running query so its result is never delivered
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pendingDispatch != null) {
+            mainHandler.removeCallbacks(pendingDispatch);
+            pendingDispatch = null;
+        }
+    }
+
+    /**
+     * Stop delivering results (call from onDestroy)
+     */
+    public void release() {
+        cancel();
+        released = true;
+    }
+
+    private void schedule(String query, long delayMillis) {
+        if (released) return;
+        cancel();
+
+        long queryGeneration = generation.get();
+        pendingDispatch = () -> {
+            pendingDispatch = null;
+            SEARCH_EXECUTOR.execute(() -> runQuery(query, queryGeneration));
+        };
+
+        if (delayMillis > 0) {
+            mainHandler.postDelayed(pendingDispatch, delayMillis);
+        } else {
+            pendingDispatch.run();
+        }
+    }
+
+    private void runQuery(String query, long queryGeneration) {
+        // Superseded while waiting for the worker
+        if (queryGeneration != generation.get() || index == null) return;
+
+        List<Product> results;
+        try {
+            results = index.search(query);
+        } catch (Exception e) {
+            Log.e(TAG, "Error searching for '" + query + "'", e);
+            return;
+        }
+
+        mainHandler.post(() -> {
+            if (released || queryGeneration != generation.get()) return;
+            listener.onSearchResults(query, results);
+        });
+    }
+
+    /**
+     * Receives the results of the latest query on the main thread
+     */
+    public interface ResultListener {
+        void onSearchResults(String query, List<Product> results);
+    }
+}
@@ -4,37 +4,74 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.grocerygo.codec.CartItemCodec;
+import com.grocerygo.codec.Codecs;
 import com.grocerygo.models.CartItem;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * CartManager - Singleton class to manage shopping cart
  * Handles adding, removing, updating items in cart
- * Persists cart data using SharedPreferences
+ * Persists cart data through a write-behind CartStore
+ * The saved cart is hydrated on the CartStore's writer thread; until then only a cached item count
+ * is available, and mutations are queued and applied once it has loaded
  */
 public class CartManager {
+    private static final String TAG = "CartManager";
     public static final int MAX_QUANTITY = 10;
 
     private static CartManager instance;
-    private List<CartItem> cartItems;
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
+    // Keyed by productId, in the order items were added
+    private final LinkedHashMap<String, CartItem> cartItems = new LinkedHashMap<>();
+    // Maintained on every mutation so badge and price reads are O(1)
+    private volatile int cachedItemCount = 0;
+    private volatile double cachedSubtotal = 0.0;
+    private final CartStore cartStore;
+    private final SharedPreferences sharedPreferences;
     private static final String PREF_NAME = "CartPreferences";
     private static final String CART_ITEMS_KEY = "cart_items";
+    private static final String ITEM_COUNT_KEY = "cart_item_count";
+
+    // Hydration state - cartItems and the cached totals are only valid once hydrated is true
+    private volatile boolean hydrated = false;
+    private final CountDownLatch hydratedLatch = new CountDownLatch(1);
+    // Guarded by "this": mutations made before hydration finished, replayed in order once it has
+    private final List<Runnable> deferredMutations = new ArrayList<>();
+    private final TaskCompletionSource<Void> readiness = new TaskCompletionSource<>();
+    private final int savedItemCount; // Badge count from the last session, shown until hydrated
+    private int lastSavedItemCount;
 
     private List<CartUpdateListener> listeners = new ArrayList<>();
 
+    // One handler for every notification instead of a new one per mutation
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    // Changes accumulated until the next frame: productId -> {oldQty, newQty}
+    private final Map<String, int[]> pendingChanges = new LinkedHashMap<>();
+    private boolean pendingCleared = false;
+    private boolean frameScheduled = false;
+    private final Choreographer.FrameCallback dispatchFrameCallback = frameTimeNanos -> dispatchPendingEvents();
+
     private CartManager(Context context) {
-        sharedPreferences = context.getApplicationContext()
-                .getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
-        loadCartFromPreferences();
+        Context appContext = context.getApplicationContext();
+        cartStore = new CartStore(appContext.getFilesDir());
+        sharedPreferences = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        savedItemCount = sharedPreferences.getInt(ITEM_COUNT_KEY, 0);
+        lastSavedItemCount = savedItemCount;
+
+        // Read and decode the saved cart off the calling (usually main) thread, ahead of any write
+        cartStore.execute(this::hydrate);
     }
 
     public static synchronized CartManager getInstance(Context context) {
@@ -44,24 +81,46 @@ public class CartManager {
         return instance;
     }
 
+    /**
+     * Write any batched cart changes to disk now, if the cart has been created.
+     * Called when the app is backgrounded or asked to trim memory.
+     */
+    public static void flushPendingWrites() {
+        CartManager manager;
+        synchronized (CartManager.class) {
+            manager = instance;
+        }
+        if (manager != null) {
+            manager.cartStore.flush();
+        }
+    }
+
+    /**
+     * Completes once the saved cart has been loaded (start it early from Application.onCreate)
+     */
+    public Task<Void> whenReady() {
+        return readiness.getTask();
+    }
+
+    public boolean isReady() {
+        return hydrated;
+    }
+
     /**
      * Add item to cart or increment quantity if already exists
      */
     public synchronized void addToCart(CartItem item) {
+        if (deferUntilHydrated(() -> addToCart(item))) return;
         // Validate
         if (item == null || item.getProductId() == null) {
             return;
         }
 
-        if (cartItems == null) {
-            cartItems = new ArrayList<>();
-        }
-
-        boolean changed = false;
-
-        // Try to find an existing item by productId (safe lookup)
-        CartItem existing = getCartItem(item.getProductId());
+        CartItem existing = cartItems.get(item.getProductId());
         if (existing != null) {
+            if (existing.getCategoryId() == null) {
+                existing.setCategoryId(item.getCategoryId());
+            }
             // Accumulate quantities and cap at MAX_QUANTITY
             int existingQty = existing.getQuantity();
             int incomingQty = item.getQuantity() <= 0 ? 1 : item.getQuantity();
@@ -69,8 +128,9 @@ public class CartManager {
             if (newQty > MAX_QUANTITY) newQty = MAX_QUANTITY;
 
             if (newQty != existingQty) {
-                existing.setQuantity(newQty);
-                changed = true;
+                setItemQuantity(existing, newQty);
+                cartStore.recordUpsert(existing);
+                queueItemChange(item.getProductId(), existingQty, newQty);
             }
         } else {
             // New item - ensure quantity is within bounds (1..MAX_QUANTITY)
@@ -78,13 +138,9 @@ public class CartManager {
             if (qty <= 0) qty = 1;
             if (qty > MAX_QUANTITY) qty = MAX_QUANTITY;
             item.setQuantity(qty);
-            cartItems.add(item);
-            changed = true;
-        }
-
-        if (changed) {
-            saveCartToPreferences();
-            notifyListeners();
+            putItem(item);
+            cartStore.recordUpsert(item);
+            queueItemChange(item.getProductId(), 0, qty);
         }
     }
 
@@ -92,12 +148,13 @@ public class CartManager {
      * Remove item from cart
      */
     public synchronized void removeFromCart(String productId) {
-        if (cartItems != null) {
-            boolean removed = cartItems.removeIf(item -> item.getProductId().equals(productId));
-            if (removed) {
-                saveCartToPreferences();
-                notifyListeners();
-            }
+        if (deferUntilHydrated(() -> removeFromCart(productId))) return;
+        if (productId == null) return;
+        CartItem removed = cartItems.remove(productId);
+        if (removed != null) {
+            subtractTotals(removed);
+            cartStore.recordRemove(productId);
+            queueItemChange(productId, removed.getQuantity(), 0);
         }
     }
 
@@ -105,24 +162,24 @@ public class CartManager {
      * Update item quantity
      */
     public synchronized void updateQuantity(String productId, int newQuantity) {
-        if (productId == null || cartItems == null) return;
+        if (deferUntilHydrated(() -> updateQuantity(productId, newQuantity))) return;
+        if (productId == null) return;
 
         // Cap the incoming quantity to MAX_QUANTITY
         if (newQuantity > MAX_QUANTITY) newQuantity = MAX_QUANTITY;
 
-        for (CartItem item : cartItems) {
-            if (item.getProductId().equals(productId)) {
-                int currentQty = item.getQuantity();
-                if (newQuantity <= 0) {
-                    // remove
-                    removeFromCart(productId);
-                } else if (newQuantity != currentQty) {
-                    item.setQuantity(newQuantity);
-                    saveCartToPreferences();
-                    notifyListeners();
-                }
-                return;
+        CartItem item = cartItems.get(productId);
+        if (item != null) {
+            int currentQty = item.getQuantity();
+            if (newQuantity <= 0) {
+                // remove
+                removeFromCart(productId);
+            } else if (newQuantity != currentQty) {
+                setItemQuantity(item, newQuantity);
+                cartStore.recordUpsert(item);
+                queueItemChange(productId, currentQty, newQuantity);
             }
+            return;
         }
 
         // If item not found and newQuantity > 0, optionally add it (respect cap)
@@ -130,9 +187,9 @@ public class CartManager {
             CartItem newItem = new CartItem();
             newItem.setProductId(productId);
             newItem.setQuantity(newQuantity);
-            cartItems.add(newItem);
-            saveCartToPreferences();
-            notifyListeners();
+            putItem(newItem);
+            cartStore.recordUpsert(newItem);
+            queueItemChange(productId, 0, newQuantity);
         }
     }
 
@@ -140,77 +197,77 @@ public class CartManager {
      * Get all cart items
      */
     public List<CartItem> getCartItems() {
-        if (cartItems == null) {
-            cartItems = new ArrayList<>();
+        // Wait outside the lock - hydration takes it to replay queued mutations
+        awaitHydration();
+        synchronized (this) {
+            return new ArrayList<>(cartItems.values());
         }
-        return new ArrayList<>(cartItems);
     }
 
     /**
      * Get cart item by product ID
      */
-    public CartItem getCartItem(String productId) {
-        if (productId == null || cartItems == null) return null;
-        for (CartItem item : cartItems) {
-            String id = item.getProductId();
-            if (id != null && id.equals(productId)) {
-                return item;
-            }
-        }
-        return null;
+    public synchronized CartItem getCartItem(String productId) {
+        // Never block a bind on hydration - rows are refreshed once the cart is loaded
+        if (productId == null || !hydrated) return null;
+        return cartItems.get(productId);
     }
 
     /**
      * Get total number of items in cart
      */
     public int getCartItemCount() {
-        if (cartItems == null) {
-            return 0;
-        }
-        int count = 0;
-        for (CartItem item : cartItems) {
-            count += item.getQuantity();
-        }
-        return count;
+        return hydrated ? cachedItemCount : savedItemCount;
     }
 
     /**
      * Get total price of all items in cart
      */
     public double getCartTotal() {
-        if (cartItems == null) {
-            return 0.0;
+        awaitHydration();
+        return cachedSubtotal;
+    }
+
+    /**
+     * Reprice lines (productId -> current price), e.g. once checkout finds the saved prices out of date
+     */
+    public synchronized void updatePrices(Map<String, Double> prices) {
+        if (deferUntilHydrated(() -> updatePrices(prices))) return;
+        boolean changed = false;
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            Double price = entry.getValue();
+            CartItem item = cartItems.get(entry.getKey());
+            if (price == null || item == null || item.getProductPrice() == price) continue;
+            cachedSubtotal -= item.getTotalPrice();
+            item.setProductPrice(price);
+            cachedSubtotal += item.getTotalPrice();
+            cartStore.recordUpsert(item);
+            changed = true;
         }
-        double total = 0.0;
-        for (CartItem item : cartItems) {
-            total += item.getTotalPrice();
+        if (changed) {
+            scheduleDispatch();
         }
-        return total;
     }
 
     /**
      * Clear entire cart
      */
     public synchronized void clearCart() {
-        if (cartItems != null && !cartItems.isEmpty()) {
+        if (deferUntilHydrated(this::clearCart)) return;
+        if (!cartItems.isEmpty()) {
             cartItems.clear();
-            saveCartToPreferences();
-            notifyListeners();
+            cachedItemCount = 0;
+            cachedSubtotal = 0.0;
+            cartStore.recordClear();
+            queueCleared();
         }
     }
 
     /**
      * Check if product is in cart
      */
-    public boolean isInCart(String productId) {
-        if (cartItems != null) {
-            for (CartItem item : cartItems) {
-                if (item.getProductId().equals(productId)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public synchronized boolean isInCart(String productId) {
+        return productId != null && hydrated && cartItems.containsKey(productId);
     }
 
     /**
@@ -222,24 +279,121 @@ public class CartManager {
     }
 
     /**
-     * Save cart to SharedPreferences
+     * Insert a new line and add it to the cached totals
      */
-    private void saveCartToPreferences() {
-        String json = gson.toJson(cartItems);
-        sharedPreferences.edit().putString(CART_ITEMS_KEY, json).apply();
+    private void putItem(CartItem item) {
+        cartItems.put(item.getProductId(), item);
+        cachedItemCount += item.getQuantity();
+        cachedSubtotal += item.getTotalPrice();
     }
 
     /**
-     * Load cart from SharedPreferences
+     * Change the quantity of an existing line, adjusting the cached totals by the delta
      */
-    private void loadCartFromPreferences() {
-        String json = sharedPreferences.getString(CART_ITEMS_KEY, null);
-        if (json != null) {
-            Type type = new TypeToken<ArrayList<CartItem>>() {}.getType();
-            cartItems = gson.fromJson(json, type);
+    private void setItemQuantity(CartItem item, int newQuantity) {
+        subtractTotals(item);
+        item.setQuantity(newQuantity);
+        cachedItemCount += item.getQuantity();
+        cachedSubtotal += item.getTotalPrice();
+    }
+
+    private void subtractTotals(CartItem item) {
+        cachedItemCount -= item.getQuantity();
+        // Reset instead of subtracting into the last line, so floating point error can't accumulate
+        cachedSubtotal = cartItems.isEmpty() ? 0.0 : cachedSubtotal - item.getTotalPrice();
+    }
+
+    /**
+     * Load the saved cart (CartStore writer thread), then apply the mutations queued meanwhile.
+     * Nothing else touches cartItems until hydrated is set.
+     */
+    private void hydrate() {
+        try {
+            loadCart();
+            Log.d(TAG, "Cart hydrated: " + cartItems.size() + " lines");
+        } catch (Exception e) {
+            Log.e(TAG, "Error hydrating cart", e);
+        } finally {
+            synchronized (this) {
+                hydrated = true;
+                for (Runnable mutation : deferredMutations) {
+                    mutation.run();
+                }
+                deferredMutations.clear();
+            }
+            hydratedLatch.countDown();
+            readiness.trySetResult(null);
+        }
+
+        // Let visible rows and badges pick up the real quantities
+        for (CartItem item : getCartItems()) {
+            queueItemChange(item.getProductId(), 0, item.getQuantity());
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Queue a mutation made before the saved cart has loaded (caller holds the lock).
+     * Returns false once hydrated, when the caller should apply it right away.
+     */
+    private boolean deferUntilHydrated(Runnable mutation) {
+        if (hydrated) return false;
+        deferredMutations.add(mutation);
+        return true;
+    }
+
+    /**
+     * Block until hydration finishes. Only full-cart reads wait here, never holding the lock.
+     */
+    private void awaitHydration() {
+        if (hydrated) return;
+        try {
+            hydratedLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Load the cart from the CartStore, migrating the old Gson/SharedPreferences cart once
+     */
+    private void loadCart() {
+        List<CartItem> savedItems;
+        if (cartStore.exists()) {
+            savedItems = cartStore.load();
         } else {
-            cartItems = new ArrayList<>();
+            savedItems = loadLegacyCart();
+            if (!savedItems.isEmpty()) {
+                cartStore.replaceAll(savedItems);
+            }
+        }
+
+        for (CartItem item : savedItems) {
+            if (item != null && item.getProductId() != null
+                    && !cartItems.containsKey(item.getProductId())) {
+                putItem(item);
+            }
+        }
+    }
+
+    /**
+     * Read (and remove) the cart saved by older versions as JSON in SharedPreferences
+     */
+    private List<CartItem> loadLegacyCart() {
+        String json = sharedPreferences.getString(CART_ITEMS_KEY, null);
+        if (json == null) {
+            return new ArrayList<>();
         }
+
+        List<CartItem> legacyItems;
+        try {
+            legacyItems = Codecs.fromJsonArray(json, CartItemCodec.INSTANCE);
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Error reading legacy cart", e);
+            legacyItems = new ArrayList<>();
+        }
+        sharedPreferences.edit().remove(CART_ITEMS_KEY).apply();
+        return legacyItems;
     }
 
     /**
@@ -259,26 +413,99 @@ public class CartManager {
     }
 
     /**
-     * Notify all listeners of cart update
+     * Record a quantity change; merged with any change to the same product earlier in this frame
      */
-    private void notifyListeners() {
-        // Always invoke listeners on the main (UI) thread so UI code does not need to call runOnUiThread
-        Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(() -> {
-            for (CartUpdateListener listener : listeners) {
-                try {
-                    listener.onCartUpdated(getCartItemCount());
-                } catch (Exception ignored) {
-                    // Avoid one failing listener from preventing others
+    private void queueItemChange(String productId, int oldQty, int newQty) {
+        synchronized (pendingChanges) {
+            int[] pending = pendingChanges.get(productId);
+            if (pending != null) {
+                pending[1] = newQty;
+            } else {
+                pendingChanges.put(productId, new int[]{oldQty, newQty});
+            }
+        }
+        scheduleDispatch();
+    }
+
+    private void queueCleared() {
+        synchronized (pendingChanges) {
+            // Anything queued before the clear is superseded by it
+            pendingChanges.clear();
+            pendingCleared = true;
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Dispatch queued events once, on the next frame, so a burst of taps causes one UI update
+     */
+    private void scheduleDispatch() {
+        synchronized (pendingChanges) {
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        // Choreographer must be used from the main thread
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(dispatchFrameCallback);
+        } else {
+            MAIN_HANDLER.post(() -> Choreographer.getInstance().postFrameCallback(dispatchFrameCallback));
+        }
+    }
+
+    /**
+     * Notify all listeners of the changes accumulated since the last frame (main thread)
+     */
+    private void dispatchPendingEvents() {
+        List<Map.Entry<String, int[]>> changes;
+        boolean cleared;
+        synchronized (pendingChanges) {
+            changes = new ArrayList<>(pendingChanges.entrySet());
+            cleared = pendingCleared;
+            pendingChanges.clear();
+            pendingCleared = false;
+            frameScheduled = false;
+        }
+
+        int itemCount = getCartItemCount();
+        if (hydrated && itemCount != lastSavedItemCount) {
+            // Cheap count for the badge on next launch, before the cart is hydrated
+            lastSavedItemCount = itemCount;
+            sharedPreferences.edit().putInt(ITEM_COUNT_KEY, itemCount).apply();
+        }
+        for (CartUpdateListener listener : new ArrayList<>(listeners)) {
+            try {
+                if (cleared) {
+                    listener.onCartCleared();
+                }
+                for (Map.Entry<String, int[]> change : changes) {
+                    int[] quantities = change.getValue();
+                    // Skip changes that cancelled out within the frame
+                    if (quantities[0] != quantities[1]) {
+                        listener.onCartItemChanged(change.getKey(), quantities[0], quantities[1]);
+                    }
                 }
+                listener.onCartUpdated(itemCount);
+            } catch (Exception ignored) {
+                // Avoid one failing listener from preventing others
             }
-        });
+        }
     }
 
     /**
-     * Interface for cart update callbacks
+     * Interface for cart update callbacks, always invoked on the main thread.
+     * Per-product callbacks let adapters rebind only the affected rows.
      */
     public interface CartUpdateListener {
         void onCartUpdated(int itemCount);
+
+        /**
+         * Quantity of one product changed (0 means not in cart)
+         */
+        default void onCartItemChanged(String productId, int oldQuantity, int newQuantity) {}
+
+        /**
+         * Every item was removed from the cart
+         */
+        default void onCartCleared() {}
     }
 }
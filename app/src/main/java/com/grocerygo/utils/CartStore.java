@@ -0,0 +1,323 @@
+package com.grocerygo.utils;
+
+import android.util.Log;
+
+import com.grocerygo.models.CartItem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CartStore - Write-behind persistence for the cart
+ * Mutations are coalesced for a short window and written on a background thread
+ * as compact binary deltas appended to a log. Once the log grows past a threshold
+ * it is folded into a snapshot file and truncated.
+ */
+public class CartStore {
+    private static final String TAG = "CartStore";
+
+    private static final String SNAPSHOT_FILE = "cart.snapshot";
+    private static final String LOG_FILE = "cart.log";
+    private static final int FORMAT_VERSION = 2;
+    private static final int FORMAT_VERSION_WITHOUT_CATEGORY = 1;
+
+    private static final byte OP_UPSERT_WITHOUT_CATEGORY = 1; // written by format 1, still read
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+    private static final byte OP_UPSERT = 4;
+
+    private static final long COALESCE_WINDOW_MS = 300;
+    private static final int COMPACT_THRESHOLD = 64; // log records before compaction
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by "this": mutations not yet handed to the writer, productId -> copy (null = removed)
+    private final LinkedHashMap<String, CartItem> pending = new LinkedHashMap<>();
+    private boolean pendingClear = false;
+    private boolean flushScheduled = false;
+
+    // Only touched on the writer thread: what is on disk, used for compaction
+    private final LinkedHashMap<String, CartItem> persisted = new LinkedHashMap<>();
+    private int logRecordCount = 0;
+
+    public CartStore(File directory) {
+        snapshotFile = new File(directory, SNAPSHOT_FILE);
+        logFile = new File(directory, LOG_FILE);
+    }
+
+    /**
+     * True if a cart has ever been written in this format
+     */
+    public boolean exists() {
+        return snapshotFile.exists() || logFile.exists();
+    }
+
+    /**
+     * Run a task on the writer thread, after everything queued before it
+     * (used to load the cart off the main thread, ahead of any write)
+     */
+    public void execute(Runnable task) {
+        writer.execute(task);
+    }
+
+    /**
+     * Read the snapshot and replay the delta log. Call on the writer thread, from a task passed to execute().
+     */
+    public List<CartItem> load() {
+        persisted.clear();
+        logRecordCount = 0;
+        readSnapshot();
+        if (!replayLog()) {
+            // Don't append after a damaged record - start a fresh log
+            compact();
+        }
+        return copyItems(persisted);
+    }
+
+    /**
+     * Replace everything on disk with these items (used to migrate the old SharedPreferences cart)
+     */
+    public void replaceAll(List<CartItem> items) {
+        Map<String, CartItem> copies = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            if (item != null && item.getProductId() != null) {
+                copies.put(item.getProductId(), copyOf(item));
+            }
+        }
+        writer.execute(() -> {
+            persisted.clear();
+            persisted.putAll(copies);
+            compact();
+        });
+    }
+
+    public synchronized void recordUpsert(CartItem item) {
+        pending.put(item.getProductId(), copyOf(item));
+        scheduleFlush();
+    }
+
+    public synchronized void recordRemove(String productId) {
+        pending.put(productId, null);
+        scheduleFlush();
+    }
+
+    public synchronized void recordClear() {
+        // A clear supersedes everything queued before it
+        pending.clear();
+        pendingClear = true;
+        scheduleFlush();
+    }
+
+    /**
+     * Write pending mutations now rather than after the coalescing window, without waiting
+     * (called on the main thread when the app is backgrounded or trimmed, before the process
+     * may be killed)
+     */
+    public void flush() {
+        writer.execute(this::writePending);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        writer.schedule(this::writePending, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append the coalesced mutations to the log (writer thread)
+     */
+    private void writePending() {
+        Map<String, CartItem> changes;
+        boolean clear;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty() && !pendingClear) return;
+            changes = new LinkedHashMap<>(pending);
+            clear = pendingClear;
+            pending.clear();
+            pendingClear = false;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(logFile, true)))) {
+            if (clear) {
+                out.writeByte(OP_CLEAR);
+                persisted.clear();
+                logRecordCount++;
+            }
+            for (Map.Entry<String, CartItem> change : changes.entrySet()) {
+                CartItem item = change.getValue();
+                if (item != null) {
+                    out.writeByte(OP_UPSERT);
+                    writeItem(out, item);
+                    persisted.put(change.getKey(), item);
+                } else {
+                    out.writeByte(OP_REMOVE);
+                    out.writeUTF(change.getKey());
+                    persisted.remove(change.getKey());
+                }
+                logRecordCount++;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending to cart log", e);
+        }
+
+        if (logRecordCount >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Fold the log into a fresh snapshot, written to a temp file and renamed into place (writer thread)
+     */
+    private void compact() {
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(persisted.size());
+            for (CartItem item : persisted.values()) {
+                writeItem(out, item);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing cart snapshot", e);
+            return;
+        }
+
+        if (!tmp.renameTo(snapshotFile)) {
+            Log.e(TAG, "Could not replace cart snapshot");
+            return;
+        }
+        // The snapshot now contains everything in the log
+        if (logFile.exists() && !logFile.delete()) {
+            Log.w(TAG, "Could not truncate cart log");
+        }
+        logRecordCount = 0;
+        Log.d(TAG, "Cart compacted: " + persisted.size() + " items");
+    }
+
+    private void readSnapshot() {
+        if (!snapshotFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION && version != FORMAT_VERSION_WITHOUT_CATEGORY) {
+                Log.w(TAG, "Unknown cart snapshot version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                CartItem item = readItem(in, version == FORMAT_VERSION);
+                persisted.put(item.getProductId(), item);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading cart snapshot", e);
+        }
+    }
+
+    /**
+     * Apply the delta log on top of the snapshot. Returns false if the log ended in a damaged record.
+     */
+    private boolean replayLog() {
+        if (!logFile.exists()) return true;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(logFile)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    break;
+                }
+                if (op == OP_UPSERT || op == OP_UPSERT_WITHOUT_CATEGORY) {
+                    CartItem item = readItem(in, op == OP_UPSERT);
+                    persisted.put(item.getProductId(), item);
+                } else if (op == OP_REMOVE) {
+                    persisted.remove(in.readUTF());
+                } else if (op == OP_CLEAR) {
+                    persisted.clear();
+                } else {
+                    Log.w(TAG, "Corrupt cart log record, ignoring the rest");
+                    return false;
+                }
+                logRecordCount++;
+            }
+        } catch (EOFException e) {
+            // Last record was cut off mid-write - everything before it is still valid
+            Log.w(TAG, "Truncated cart log record ignored");
+            return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Error replaying cart log", e);
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeItem(DataOutputStream out, CartItem item) throws IOException {
+        out.writeUTF(item.getProductId());
+        writeNullableString(out, item.getProductName());
+        writeNullableString(out, item.getProductImage());
+        out.writeDouble(item.getProductPrice());
+        writeNullableString(out, item.getProductUnit());
+        out.writeInt(item.getQuantity());
+        writeNullableString(out, item.getCategoryId());
+    }
+
+    private static CartItem readItem(DataInputStream in, boolean withCategory) throws IOException {
+        String productId = in.readUTF();
+        String name = readNullableString(in);
+        String image = readNullableString(in);
+        double price = in.readDouble();
+        String unit = readNullableString(in);
+        int quantity = in.readInt();
+        CartItem item = new CartItem(productId, name, image, price, unit, quantity);
+        if (withCategory) {
+            item.setCategoryId(readNullableString(in));
+        }
+        return item;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static CartItem copyOf(CartItem item) {
+        CartItem copy = new CartItem(item.getProductId(), item.getProductName(), item.getProductImage(),
+                item.getProductPrice(), item.getProductUnit(), item.getQuantity());
+        copy.setCategoryId(item.getCategoryId());
+        return copy;
+    }
+
+    private static List<CartItem> copyItems(Map<String, CartItem> items) {
+        List<CartItem> result = new ArrayList<>(items.size());
+        for (CartItem item : items.values()) {
+            result.add(copyOf(item));
+        }
+        return result;
+    }
+}
@@ -6,10 +6,12 @@ import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.grocerygo.codec.AddressCodec;
+import com.grocerygo.codec.Codecs;
 import com.grocerygo.firebase.AuthRepository;
 import com.grocerygo.firebase.CategoryRepository;
+import com.grocerygo.firebase.FirebaseManager;
 import com.grocerygo.firebase.ProductRepository;
 import com.grocerygo.models.Address;
 import com.grocerygo.models.Category;
@@ -40,7 +42,6 @@ public class DataPreloader {
     private final AuthRepository authRepository;
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
-    private final FirebaseFirestore db;
 
     // Loading state
     private boolean isLoading = false;
@@ -49,7 +50,6 @@ public class DataPreloader {
         authRepository = new AuthRepository();
         categoryRepository = new CategoryRepository();
         productRepository = new ProductRepository();
-        db = FirebaseFirestore.getInstance();
 
         categories = new ArrayList<>();
         featuredProducts = new ArrayList<>();
@@ -133,14 +133,10 @@ public class DataPreloader {
     }
 
     private Task<Address> loadDefaultAddress(String userId) {
-        return db.collection("addresses")
-            .whereEqualTo("userId", userId)
-            .whereEqualTo("isDefault", true)
-            .limit(1)
-            .get()
+        return FirebaseManager.getInstance().getDefaultAddress(userId)
             .continueWith(task -> {
                 if (task.isSuccessful() && task.getResult() != null && !task.getResult().isEmpty()) {
-                    defaultAddress = task.getResult().getDocuments().get(0).toObject(Address.class);
+                    defaultAddress = Codecs.decode(task.getResult().getDocuments().get(0), AddressCodec.INSTANCE);
                     Log.d(TAG, "Default address loaded: " + defaultAddress.getCity());
                 } else {
                     Log.w(TAG, "No default address found");
@@ -188,12 +184,12 @@ public class DataPreloader {
     }
 
     private Task<List<Product>> loadAllProductsFallback() {
-        return productRepository.getAllProducts()
+        // A single page of 10 instead of reading the whole catalog and keeping the first 10
+        return productRepository.getProductsPage(10, null)
             .continueWith(task -> {
-                if (task.isSuccessful() && task.getResult() != null && !task.getResult().isEmpty()) {
-                    int limit = Math.min(10, task.getResult().size());
+                if (task.isSuccessful() && task.getResult() != null && !task.getResult().getItems().isEmpty()) {
                     featuredProducts.clear();
-                    featuredProducts.addAll(task.getResult().subList(0, limit));
+                    featuredProducts.addAll(task.getResult().getItems());
                     Log.d(TAG, "All products loaded (limited): " + featuredProducts.size());
                 } else {
                     Log.w(TAG, "Failed to load products");
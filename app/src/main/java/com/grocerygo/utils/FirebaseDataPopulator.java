@@ -3,11 +3,16 @@ package com.grocerygo.utils;
 import android.util.Log;
 
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.grocerygo.firebase.CatalogCache;
 import com.grocerygo.models.Category;
 import com.grocerygo.models.Product;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FirebaseDataPopulator {
     private static final String TAG = "FirebaseDataPopulator";
@@ -22,6 +27,8 @@ public class FirebaseDataPopulator {
         populateCategories(() -> {
             // Then populate products
             populateProducts(() -> {
+                // Screens must not keep showing the catalog from before the import
+                CatalogCache.getInstance().invalidateAll();
                 if (listener != null) {
                     listener.onSuccess();
                 }
@@ -232,18 +239,43 @@ public class FirebaseDataPopulator {
         for (Product product : products) {
             db.collection("products")
                     .document(product.getProductId())
-                    .set(product)
+                    // Merge, so fields the sample data doesn't set (e.g. stockShards) are kept
+                    .set(product, SetOptions.merge())
                     .addOnSuccessListener(aVoid -> {
                         counter[0]++;
                         Log.d(TAG, "Product added: " + product.getName() + " (" + counter[0] + "/" + products.size() + ")");
-                        if (counter[0] == products.size() && onComplete != null) {
-                            onComplete.run();
+                        if (counter[0] == products.size()) {
+                            writeProductCounts(products, onComplete);
                         }
                     })
                     .addOnFailureListener(e -> Log.e(TAG, "Error adding product: " + product.getName(), e));
         }
     }
 
+    /**
+     * Seed each category's denormalized productCount (ProductRepository keeps it up to date afterwards)
+     */
+    private void writeProductCounts(List<Product> products, Runnable onComplete) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Product product : products) {
+            Integer count = counts.get(product.getCategoryId());
+            counts.put(product.getCategoryId(), count == null ? 1 : count + 1);
+        }
+
+        WriteBatch batch = db.batch();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            batch.update(db.collection("categories").document(entry.getKey()), "productCount", entry.getValue());
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Product counts written for " + counts.size() + " categories"))
+                .addOnFailureListener(e -> Log.e(TAG, "Error writing product counts", e))
+                .addOnCompleteListener(task -> {
+                    if (onComplete != null) {
+                        onComplete.run();
+                    }
+                });
+    }
+
     private Product createProduct(String id, String name, String description, double price,
                                    String imageUrl, String category, String categoryId, String unit, int stock,
                                    double rating, int reviewCount) {
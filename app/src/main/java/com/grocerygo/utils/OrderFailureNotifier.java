@@ -0,0 +1,107 @@
+package com.grocerygo.utils;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.grocerygo.CartActivity;
+import com.grocerygo.app.R;
+import com.grocerygo.models.CartItem;
+import com.grocerygo.models.Order;
+
+/**
+ * OrderFailureNotifier - Handles orders the server rejected after checkout had already finished
+ * Checkout completes as soon as OrderOutbox has saved the order, clearing the cart, so a later
+ * rejection (out of stock, price changed) would otherwise lose the buyer's items. The order's
+ * lines go back into the cart and a notification explains why, opening the cart when tapped.
+ */
+public class OrderFailureNotifier implements OrderOutbox.Listener {
+    private static final String TAG = "OrderFailureNotifier";
+    private static final String CHANNEL_ID = "order_updates";
+
+    private final Context context;
+
+    public OrderFailureNotifier(Context context) {
+        this.context = context.getApplicationContext();
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Order updates",
+                NotificationManager.IMPORTANCE_HIGH);
+        channel.setDescription("Orders that couldn't be placed");
+        NotificationManager manager = this.context.getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public void onOrderPlaced(String orderId) {
+        Log.d(TAG, "Queued order placed: " + orderId);
+    }
+
+    @Override
+    public void onOrderFailed(Order order, Exception e) {
+        restoreCart(order);
+        notifyFailure(order, e);
+    }
+
+    /**
+     * Put the order's lines back in the cart; lines the buyer has added again since are kept as they are
+     */
+    private void restoreCart(Order order) {
+        if (order.getItems() == null) return;
+        CartManager cartManager = CartManager.getInstance(context);
+        cartManager.whenReady().addOnSuccessListener(ready -> {
+            for (Order.OrderItem item : order.getItems()) {
+                if (cartManager.isInCart(item.getProductId())) continue;
+                cartManager.addToCart(new CartItem(item.getProductId(), item.getProductName(),
+                        item.getImageUrl(), item.getPrice(), null, item.getQuantity()));
+            }
+            Log.d(TAG, "Restored " + order.getItems().size() + " lines of rejected order " + order.getOrderId());
+        });
+    }
+
+    /**
+     * POST_NOTIFICATIONS is a runtime permission only from API 33; below that it is always granted
+     */
+    public static boolean canPostNotifications(Context context) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                        == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private void notifyFailure(Order order, Exception e) {
+        String message = (e.getMessage() != null ? e.getMessage() + ". " : "")
+                + "Your items are back in your cart.";
+
+        if (!canPostNotifications(context)) {
+            // No way to post a notification - a toast is better than nothing
+            Toast.makeText(context, "Order couldn't be placed: " + message, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        Intent intent = new Intent(context, CartActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent openCart = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_cart)
+                .setContentTitle("Order couldn't be placed")
+                .setContentText(message)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(openCart)
+                .setAutoCancel(true);
+        NotificationManagerCompat.from(context).notify(order.getOrderId().hashCode(), notification.build());
+    }
+}
@@ -0,0 +1,119 @@
+package com.grocerygo.utils;
+
+import com.grocerygo.models.Order;
+import com.grocerygo.models.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OrderIndex - Orders bucketed by status, each bucket kept newest first
+ * Lists handed out are live read-only views, so switching tabs is just swapping
+ * which bucket an adapter shows, and counts are the bucket sizes. Inserts and
+ * removals find their position by binary search on the order date, so an indexed
+ * order must not be modified in place - put() the updated copy instead.
+ * Not thread-safe; use it from the main thread.
+ */
+public class OrderIndex {
+    // Newest first; orders with no date yet (server timestamp pending) are the newest.
+    // Ties are broken by ID so every order has exactly one position.
+    private static final Comparator<Order> NEWEST_FIRST = (a, b) -> {
+        if (a.getOrderDate() == null || b.getOrderDate() == null) {
+            if (a.getOrderDate() != b.getOrderDate()) {
+                return a.getOrderDate() == null ? -1 : 1;
+            }
+        } else {
+            int byDate = b.getOrderDate().compareTo(a.getOrderDate());
+            if (byDate != 0) return byDate;
+        }
+        return String.valueOf(a.getOrderId()).compareTo(String.valueOf(b.getOrderId()));
+    };
+
+    private final Map<String, Order> ordersById = new HashMap<>();
+    private final List<Order> all = new ArrayList<>();
+    private final EnumMap<OrderStatus, List<Order>> buckets = new EnumMap<>(OrderStatus.class);
+
+    public OrderIndex() {
+        for (OrderStatus status : OrderStatus.values()) {
+            buckets.put(status, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Add an order, replacing any order with the same ID.
+     * Returns its position in the bucket for its status.
+     */
+    public int put(Order order) {
+        remove(order.getOrderId());
+        ordersById.put(order.getOrderId(), order);
+        insert(all, order);
+        return insert(buckets.get(OrderStatus.of(order.getStatus())), order);
+    }
+
+    public void putAll(List<Order> orders) {
+        for (Order order : orders) {
+            put(order);
+        }
+    }
+
+    /**
+     * Remove an order. Returns the position it had in its status bucket, or -1 if it wasn't indexed.
+     */
+    public int remove(String orderId) {
+        Order order = ordersById.remove(orderId);
+        if (order == null) return -1;
+        all.remove(Collections.binarySearch(all, order, NEWEST_FIRST));
+        List<Order> bucket = buckets.get(OrderStatus.of(order.getStatus()));
+        int position = Collections.binarySearch(bucket, order, NEWEST_FIRST);
+        bucket.remove(position);
+        return position;
+    }
+
+    public void clear() {
+        ordersById.clear();
+        all.clear();
+        for (List<Order> bucket : buckets.values()) {
+            bucket.clear();
+        }
+    }
+
+    public Order get(String orderId) {
+        return ordersById.get(orderId);
+    }
+
+    /**
+     * Every order, newest first (live, read-only)
+     */
+    public List<Order> getOrders() {
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Orders with this status, newest first (live, read-only)
+     */
+    public List<Order> getOrders(OrderStatus status) {
+        return Collections.unmodifiableList(buckets.get(status));
+    }
+
+    public int getCount() {
+        return all.size();
+    }
+
+    public int getCount(OrderStatus status) {
+        return buckets.get(status).size();
+    }
+
+    private static int insert(List<Order> list, Order order) {
+        int position = Collections.binarySearch(list, order, NEWEST_FIRST);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        list.add(position, order);
+        return position;
+    }
+}
@@ -0,0 +1,279 @@
+package com.grocerygo.utils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.functions.FirebaseFunctionsException;
+import com.grocerygo.codec.Codecs;
+import com.grocerygo.codec.OrderCodec;
+import com.grocerygo.firebase.InsufficientStockException;
+import com.grocerygo.firebase.OrderRepository;
+import com.grocerygo.firebase.PriceChangedException;
+import com.grocerygo.models.Order;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * OrderOutbox - Durable queue of orders waiting to be written to Firestore
+ * submit() gives the order its id up front, saves it to a small file and completes as soon
+ * as that local write is done, so checkout never waits on the network. A background worker
+ * then places queued orders one at a time with OrderRepository.placeOrderAtomically.
+ * The id is the idempotency key: placement is a no-op for an id that already exists, so an
+ * order that reached the server before a dropped connection, a process kill or a second tap
+ * is never written twice. The queue drains when the network comes back, with backoff
+ * retries in between; orders the server rejects (out of stock, price changed) are dropped
+ * and reported to listeners.
+ */
+public class OrderOutbox {
+    private static final String TAG = "OrderOutbox";
+
+    private static final String QUEUE_FILE = "order_outbox.dat";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final long RETRY_DELAY_MS = 30000;
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static OrderOutbox instance;
+
+    private final File queueFile;
+    private final OrderRepository orderRepository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched on the worker thread: orderId -> order not yet confirmed by the server
+    private final Map<String, Order> pending = new LinkedHashMap<>();
+    private String inFlightOrderId;
+    private ScheduledFuture<?> retry;
+    private long retryDelayMs = RETRY_DELAY_MS;
+
+    private OrderOutbox(Context context) {
+        Context appContext = context.getApplicationContext();
+        queueFile = new File(appContext.getFilesDir(), QUEUE_FILE);
+        orderRepository = new OrderRepository();
+        worker.execute(() -> {
+            readQueue();
+            Log.d(TAG, "Restored " + pending.size() + " queued orders");
+            drain();
+        });
+
+        ConnectivityManager connectivity = appContext.getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    worker.execute(() -> {
+                        // Back online: don't sit out the rest of a backoff delay
+                        retryDelayMs = RETRY_DELAY_MS;
+                        drain();
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Create it from Application.onCreate so orders queued before the app was last killed are sent
+     */
+    public static synchronized OrderOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new OrderOutbox(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Queue the order, assigning its id and order date if it has none. The task completes with the id once
+     * the order is saved on the device; it is sent in the background. Submitting an order
+     * with the id of one still queued replaces it rather than adding a second.
+     */
+    public Task<String> submit(Order order) {
+        if (order.getOrderId() == null) {
+            order.setOrderId(orderRepository.newOrderId());
+        }
+        // orderDate is a @ServerTimestamp, which would be filled in only when the order reaches
+        // the server - possibly hours later for an order queued offline. Date it now instead.
+        if (order.getOrderDate() == null) {
+            order.setOrderDate(new Date());
+        }
+        String orderId = order.getOrderId();
+        TaskCompletionSource<String> saved = new TaskCompletionSource<>();
+        worker.execute(() -> {
+            Order previous = pending.put(orderId, order);
+            if (writeQueue()) {
+                saved.setResult(orderId);
+                drain();
+            } else {
+                if (previous != null) {
+                    pending.put(orderId, previous);
+                } else {
+                    pending.remove(orderId);
+                }
+                saved.setException(new IOException("Could not save the order on this device"));
+            }
+        });
+        return saved.getTask();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Send the oldest queued order, unless one is already on its way (worker thread)
+     */
+    private void drain() {
+        if (inFlightOrderId != null || pending.isEmpty()) return;
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+
+        Order order = pending.values().iterator().next();
+        inFlightOrderId = order.getOrderId();
+        orderRepository.placeOrderAtomically(order)
+                .addOnCompleteListener(worker, task -> onPlacementComplete(order, task));
+    }
+
+    private void onPlacementComplete(Order order, Task<String> task) {
+        String orderId = order.getOrderId();
+        inFlightOrderId = null;
+
+        if (task.isSuccessful() || isPermanent(task.getException())) {
+            // Placed, or rejected for good - either way it leaves the queue
+            if (pending.get(orderId) == order) {
+                pending.remove(orderId);
+                writeQueue();
+            }
+            retryDelayMs = RETRY_DELAY_MS;
+            if (task.isSuccessful()) {
+                Log.d(TAG, "Order " + orderId + " placed, " + pending.size() + " still queued");
+                notifyListeners(listener -> listener.onOrderPlaced(orderId));
+            } else {
+                Exception e = task.getException();
+                Log.w(TAG, "Order " + orderId + " rejected", e);
+                notifyListeners(listener -> listener.onOrderFailed(order, e));
+            }
+            drain();
+            return;
+        }
+
+        Log.w(TAG, "Order " + orderId + " not sent, retrying in " + retryDelayMs + "ms", task.getException());
+        retry = worker.schedule(this::drain, retryDelayMs, TimeUnit.MILLISECONDS);
+        retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+    }
+
+    /**
+     * Failures that another attempt won't fix
+     */
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof InsufficientStockException
+                || e instanceof PriceChangedException
+                || e instanceof IllegalArgumentException) {
+            return true;
+        }
+        if (e instanceof FirebaseFunctionsException) {
+            FirebaseFunctionsException.Code code = ((FirebaseFunctionsException) e).getCode();
+            return code == FirebaseFunctionsException.Code.PERMISSION_DENIED
+                    || code == FirebaseFunctionsException.Code.INVALID_ARGUMENT
+                    || code == FirebaseFunctionsException.Code.ALREADY_EXISTS
+                    || code == FirebaseFunctionsException.Code.FAILED_PRECONDITION;
+        }
+        return false;
+    }
+
+    private void notifyListeners(Consumer<Listener> call) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                call.accept(listener);
+            }
+        });
+    }
+
+    /**
+     * Rewrite the queue file, through a temp file renamed into place (worker thread)
+     */
+    private boolean writeQueue() {
+        byte[] json = Codecs.toJsonArray(new ArrayList<>(pending.values()), OrderCodec.INSTANCE)
+                .getBytes(StandardCharsets.UTF_8);
+        File tmp = new File(queueFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(json.length);
+            out.write(json);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing order queue", e);
+            return false;
+        }
+        if (!tmp.renameTo(queueFile)) {
+            Log.e(TAG, "Could not replace order queue");
+            return false;
+        }
+        return true;
+    }
+
+    private void readQueue() {
+        if (!queueFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(queueFile)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                Log.w(TAG, "Unknown order queue version " + version);
+                return;
+            }
+            byte[] json = new byte[in.readInt()];
+            in.readFully(json);
+            for (Order order : Codecs.fromJsonArray(new String(json, StandardCharsets.UTF_8), OrderCodec.INSTANCE)) {
+                if (order.getOrderId() != null) {
+                    pending.put(order.getOrderId(), order);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "Error reading order queue", e);
+        }
+    }
+
+    /**
+     * Outcome of queued orders, delivered on the main thread
+     */
+    public interface Listener {
+        void onOrderPlaced(String orderId);
+
+        /** The server rejected the order; it has been removed from the queue */
+        void onOrderFailed(Order order, Exception e);
+    }
+}
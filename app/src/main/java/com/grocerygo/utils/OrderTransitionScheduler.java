@@ -0,0 +1,240 @@
+package com.grocerygo.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.firebase.FirebaseManager;
+import com.grocerygo.models.OrderStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderTransitionScheduler - Durable queue of timed order status changes (e.g. auto-delivery)
+ * Pending transitions are kept in a small file, so they survive the admin leaving the
+ * screen and the process being killed; the queue is reloaded when the app starts.
+ * A single background worker wakes when the earliest transition is due and commits
+ * every transition due by then in one transaction. A transition is only applied if the
+ * order is still in the status it was scheduled from, checked inside that transaction,
+ * so an order cancelled or delivered by hand in the meantime is left alone.
+ */
+public class OrderTransitionScheduler {
+    private static final String TAG = "OrderTransitions";
+
+    private static final String QUEUE_FILE = "order_transitions.dat";
+    private static final int FORMAT_VERSION = 1;
+
+    // Transitions due within this window of the first one ride along in the same batch
+    private static final long BATCH_WINDOW_MS = 2000;
+    private static final long RETRY_DELAY_MS = 30000;
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_TRANSACTION_WRITES = 500; // Firestore's limit per transaction
+    // Offline, Firestore calls never complete; give up on a run after this and retry later,
+    // so the worker is free to record newly scheduled transitions meanwhile
+    private static final long FIRESTORE_TIMEOUT_SECONDS = 30;
+
+    private static OrderTransitionScheduler instance;
+
+    private final File queueFile;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-transitions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched on the worker thread: orderId -> its pending transition
+    private final Map<String, Transition> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> wakeUp;
+    private long retryDelayMs = RETRY_DELAY_MS;
+
+    private OrderTransitionScheduler(Context context) {
+        queueFile = new File(context.getApplicationContext().getFilesDir(), QUEUE_FILE);
+        worker.execute(() -> {
+            readQueue();
+            Log.d(TAG, "Restored " + pending.size() + " pending transitions");
+            scheduleWakeUp();
+        });
+    }
+
+    /**
+     * Create it from Application.onCreate so transitions left over from a previous run resume
+     */
+    public static synchronized OrderTransitionScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new OrderTransitionScheduler(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Move the order from one status to another after a delay.
+     * Replaces any transition already pending for the order.
+     */
+    public void schedule(String orderId, OrderStatus from, OrderStatus to, long delayMillis) {
+        Transition transition = new Transition(orderId, from, to, System.currentTimeMillis() + delayMillis);
+        worker.execute(() -> {
+            pending.put(orderId, transition);
+            writeQueue();
+            scheduleWakeUp();
+        });
+    }
+
+    public void cancel(String orderId) {
+        worker.execute(() -> {
+            if (pending.remove(orderId) != null) {
+                writeQueue();
+                scheduleWakeUp();
+            }
+        });
+    }
+
+    /**
+     * Arm the worker for the earliest pending transition (worker thread)
+     */
+    private void scheduleWakeUp() {
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        if (pending.isEmpty()) return;
+
+        long earliest = Long.MAX_VALUE;
+        for (Transition transition : pending.values()) {
+            earliest = Math.min(earliest, transition.dueAt);
+        }
+        long delay = Math.max(0, earliest - System.currentTimeMillis());
+        wakeUp = worker.schedule(this::runDueTransitions, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apply every transition that is due (worker thread). Blocking on Tasks is fine here.
+     */
+    private void runDueTransitions() {
+        wakeUp = null;
+        long cutoff = System.currentTimeMillis() + BATCH_WINDOW_MS;
+        List<Transition> due = new ArrayList<>();
+        for (Transition transition : pending.values()) {
+            if (transition.dueAt <= cutoff && due.size() < MAX_TRANSACTION_WRITES) {
+                due.add(transition);
+            }
+        }
+        if (due.isEmpty()) {
+            scheduleWakeUp();
+            return;
+        }
+
+        try {
+            FirebaseFirestore db = FirebaseManager.getInstance().getDb();
+            // Read each order inside the transaction, so a status changed by hand (say, a
+            // cancel) between the check and the write makes the transaction retry rather
+            // than being overwritten
+            int writes = Tasks.await(db.runTransaction(transaction -> {
+                List<Transition> applicable = new ArrayList<>();
+                for (Transition transition : due) {
+                    DocumentSnapshot order = transaction.get(db.collection("orders").document(transition.orderId));
+                    if (order.exists() && OrderStatus.of(order.getString("status")) == transition.from) {
+                        applicable.add(transition);
+                    }
+                }
+                for (Transition transition : applicable) {
+                    transaction.update(db.collection("orders").document(transition.orderId),
+                            "status", transition.to.getValue());
+                }
+                return applicable.size();
+            }), FIRESTORE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            // Applied or no longer applicable (order moved on or was deleted) - either way done
+            for (Transition transition : due) {
+                if (pending.get(transition.orderId) == transition) {
+                    pending.remove(transition.orderId);
+                }
+            }
+            writeQueue();
+            retryDelayMs = RETRY_DELAY_MS;
+            Log.d(TAG, "Applied " + writes + " of " + due.size() + " due transitions, "
+                    + pending.size() + " still pending");
+            scheduleWakeUp();
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying order transitions, retrying in " + retryDelayMs + "ms", e);
+            wakeUp = worker.schedule(this::runDueTransitions, retryDelayMs, TimeUnit.MILLISECONDS);
+            retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    /**
+     * Rewrite the queue file, through a temp file renamed into place (worker thread)
+     */
+    private void writeQueue() {
+        File tmp = new File(queueFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(pending.size());
+            for (Transition transition : pending.values()) {
+                out.writeUTF(transition.orderId);
+                out.writeUTF(transition.from.name());
+                out.writeUTF(transition.to.name());
+                out.writeLong(transition.dueAt);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing transition queue", e);
+            return;
+        }
+        if (!tmp.renameTo(queueFile)) {
+            Log.e(TAG, "Could not replace transition queue");
+        }
+    }
+
+    private void readQueue() {
+        if (!queueFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(queueFile)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                Log.w(TAG, "Unknown transition queue version " + version);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String orderId = in.readUTF();
+                OrderStatus from = OrderStatus.valueOf(in.readUTF());
+                OrderStatus to = OrderStatus.valueOf(in.readUTF());
+                long dueAt = in.readLong();
+                pending.put(orderId, new Transition(orderId, from, to, dueAt));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Error reading transition queue", e);
+        }
+    }
+
+    private static class Transition {
+        final String orderId;
+        final OrderStatus from;
+        final OrderStatus to;
+        final long dueAt;
+
+        Transition(String orderId, OrderStatus from, OrderStatus to, long dueAt) {
+            this.orderId = orderId;
+            this.from = from;
+            this.to = to;
+            this.dueAt = dueAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.grocerygo.utils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * PaginationScrollListener - Asks for the next page while the user is still
+ * a few rows away from the end of the list, so it is usually loaded before they get there.
+ * Works with LinearLayoutManager and its subclasses (including GridLayoutManager).
+ */
+public abstract class PaginationScrollListener extends RecyclerView.OnScrollListener {
+    public static final int DEFAULT_PREFETCH_DISTANCE = 8; // items
+
+    private final LinearLayoutManager layoutManager;
+    private final int prefetchDistance;
+
+    public PaginationScrollListener(LinearLayoutManager layoutManager) {
+        this(layoutManager, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public PaginationScrollListener(LinearLayoutManager layoutManager, int prefetchDistance) {
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0) return;
+        checkPrefetch();
+    }
+
+    /**
+     * Load the next page if the end of the list is already within reach
+     * (call after a page is appended, in case it didn't fill the screen)
+     */
+    public void checkPrefetch() {
+        if (isLoading() || !hasMorePages()) return;
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        int total = layoutManager.getItemCount();
+        if (lastVisible != RecyclerView.NO_POSITION && lastVisible + prefetchDistance >= total) {
+            loadNextPage();
+        }
+    }
+
+    protected abstract boolean isLoading();
+
+    protected abstract boolean hasMorePages();
+
+    protected abstract void loadNextPage();
+}
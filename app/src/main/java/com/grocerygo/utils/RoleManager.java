@@ -4,6 +4,7 @@ import android.util.Log;
 
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.firebase.FirebaseManager;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -72,9 +73,7 @@ public class RoleManager {
      * @return Task that returns the role string
      */
     public Task<String> getUserRole(String userId) {
-        return db.collection("users")
-                .document(userId)
-                .get()
+        return FirebaseManager.getInstance().getUserDocument(userId)
                 .continueWith(task -> {
                     if (task.isSuccessful() && task.getResult() != null) {
                         String role = task.getResult().getString("role");
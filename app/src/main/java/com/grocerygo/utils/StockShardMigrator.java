@@ -0,0 +1,97 @@
+package com.grocerygo.utils;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.grocerygo.firebase.StockShards;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to move products' stockQuantity into sharded counters (see StockShards)
+ * Each product is migrated in its own transaction, so a checkout racing the migration
+ * either lands before the split or after it, never in between. Products that are
+ * already sharded are skipped, so running it again is harmless.
+ */
+public class StockShardMigrator {
+    private static final String TAG = "StockShardMigrator";
+    private final FirebaseFirestore db;
+
+    public StockShardMigrator() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public StockShardMigrator(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Shard every product in the catalog
+     * @return Task with the number of products migrated
+     */
+    public Task<Integer> migrateAll(int shardCount) {
+        return db.collection("products").get().continueWithTask(task -> {
+            if (!task.isSuccessful() || task.getResult() == null) {
+                Exception e = task.getException();
+                Log.e(TAG, "Error getting products to shard", e);
+                if (e != null) throw e;
+                throw new Exception("Unknown error getting products to shard");
+            }
+            List<String> productIds = new ArrayList<>();
+            for (DocumentSnapshot product : task.getResult().getDocuments()) {
+                productIds.add(product.getId());
+            }
+            return migrate(productIds, shardCount);
+        });
+    }
+
+    /**
+     * Shard the given products
+     * @return Task with the number of products migrated
+     */
+    public Task<Integer> migrate(List<String> productIds, int shardCount) {
+        List<Task<Boolean>> tasks = new ArrayList<>();
+        for (String productId : productIds) {
+            tasks.add(migrateProduct(productId, shardCount));
+        }
+        return Tasks.whenAllSuccess(tasks).continueWith(task -> {
+            int migrated = 0;
+            for (Object result : task.getResult()) {
+                if (Boolean.TRUE.equals(result)) migrated++;
+            }
+            Log.d(TAG, "Sharded stock of " + migrated + " of " + productIds.size() + " products");
+            return migrated;
+        });
+    }
+
+    private Task<Boolean> migrateProduct(String productId, int shardCount) {
+        DocumentReference productRef = db.collection("products").document(productId);
+        CollectionReference shards = StockShards.shards(db, productId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot product = transaction.get(productRef);
+            Long current = product.getLong(StockShards.FIELD_SHARD_COUNT);
+            if (!product.exists() || (current != null && current > 0)) {
+                return false;
+            }
+
+            // Split evenly; the first shards take the remainder
+            Long stockQuantity = product.getLong("stockQuantity");
+            long stock = stockQuantity != null ? Math.max(0, stockQuantity) : 0;
+            for (int i = 0; i < shardCount; i++) {
+                Map<String, Object> shard = new HashMap<>();
+                shard.put(StockShards.FIELD_COUNT, stock / shardCount + (i < stock % shardCount ? 1 : 0));
+                transaction.set(shards.document(String.valueOf(i)), shard);
+            }
+            transaction.update(productRef, StockShards.FIELD_SHARD_COUNT, shardCount);
+            return true;
+        });
+    }
+}
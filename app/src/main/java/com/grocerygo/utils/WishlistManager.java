@@ -8,6 +8,7 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
+import com.grocerygo.firebase.FirebaseManager;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -58,9 +59,8 @@ public class WishlistManager {
             return;
         }
 
-        db.collection("users")
-                .document(currentUser.getUid())
-                .get()
+        // Usually shares the read with the other startup reads of the user document
+        FirebaseManager.getInstance().getUserDocument(currentUser.getUid())
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot != null && documentSnapshot.exists()) {
                         List<String> wishlist = (List<String>) documentSnapshot.get("wishlist");
@@ -0,0 +1,223 @@
+package com.grocerygo.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.grocerygo.models.Order;
+import com.grocerygo.models.Product;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the explicit codecs with Gson's reflective mapping on the JVM.
+ * Firestore's own mapper needs live snapshots, so map decoding is measured
+ * against Gson's reflective tree mapping of the same data as a stand-in.
+ * The tests that both paths agree always run. The timings are printed, not asserted, by a
+ * separate test that is skipped unless asked for with ./gradlew test -Pbenchmarks.
+ */
+public class CodecBenchmarkTest {
+    private static final int CATALOG_SIZE = 500;
+    private static final int WARMUP_ROUNDS = 100;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void productJson_matchesGson() throws IOException {
+        List<Product> products = sampleProducts();
+        String json = Codecs.toJsonArray(products, ProductCodec.INSTANCE);
+        Type listType = new TypeToken<ArrayList<Product>>() {}.getType();
+
+        List<Product> viaCodec = Codecs.fromJsonArray(json, ProductCodec.INSTANCE);
+        List<Product> viaGson = gson.fromJson(json, listType);
+        assertEquals(products.size(), viaCodec.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertSameProduct(viaGson.get(i), viaCodec.get(i));
+        }
+    }
+
+    @Test
+    public void productMap_matchesReflectiveMapping() {
+        for (Map<String, Object> data : sampleDocuments()) {
+            Product viaCodec = ProductCodec.INSTANCE.fromMap((String) data.get("productId"), data);
+            Product viaGson = gson.fromJson(gson.toJsonTree(data), Product.class);
+            assertSameProduct(viaGson, viaCodec);
+        }
+    }
+
+    @Test
+    public void orderJson_roundTrips() throws IOException {
+        List<Order> orders = sampleOrders();
+        String codecJson = Codecs.toJsonArray(orders, OrderCodec.INSTANCE);
+
+        List<Order> decoded = Codecs.fromJsonArray(codecJson, OrderCodec.INSTANCE);
+        assertEquals(orders.size(), decoded.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order expected = orders.get(i);
+            Order actual = decoded.get(i);
+            assertEquals(expected.getOrderId(), actual.getOrderId());
+            assertEquals(expected.getTotalAmount(), actual.getTotalAmount(), 0.0);
+            assertEquals(expected.isPaid(), actual.isPaid());
+            assertEquals(expected.getOrderDate(), actual.getOrderDate());
+            assertEquals(expected.getItemCount(), actual.getItemCount());
+        }
+    }
+
+    @Test
+    public void codecs_areTimedAgainstGson() throws IOException {
+        assumeTrue("Benchmark, run with ./gradlew test -Pbenchmarks", Boolean.getBoolean("benchmarks"));
+
+        String productJson = Codecs.toJsonArray(sampleProducts(), ProductCodec.INSTANCE);
+        Type productListType = new TypeToken<ArrayList<Product>>() {}.getType();
+        compare("Product JSON decode",
+                () -> Codecs.fromJsonArray(productJson, ProductCodec.INSTANCE),
+                () -> gson.fromJson(productJson, productListType));
+
+        List<Map<String, Object>> documents = sampleDocuments();
+        compare("Product map decode",
+                () -> {
+                    for (Map<String, Object> data : documents) {
+                        ProductCodec.INSTANCE.fromMap((String) data.get("productId"), data);
+                    }
+                },
+                () -> {
+                    for (Map<String, Object> data : documents) {
+                        gson.fromJson(gson.toJsonTree(data), Product.class);
+                    }
+                });
+
+        List<Order> orders = sampleOrders();
+        String codecJson = Codecs.toJsonArray(orders, OrderCodec.INSTANCE);
+        String gsonJson = gson.toJson(orders);
+        Type orderListType = new TypeToken<ArrayList<Order>>() {}.getType();
+        compare("Order JSON decode",
+                () -> Codecs.fromJsonArray(codecJson, OrderCodec.INSTANCE),
+                () -> gson.fromJson(gsonJson, orderListType));
+        compare("Order JSON encode",
+                () -> Codecs.toJsonArray(orders, OrderCodec.INSTANCE),
+                () -> gson.toJson(orders));
+    }
+
+    @Test
+    public void orderMap_readsBothPaidFieldNames() {
+        Map<String, Object> mapperWritten = new HashMap<>();
+        mapperWritten.put("paid", true);
+        Map<String, Object> updated = new HashMap<>();
+        updated.put("isPaid", true);
+
+        assertTrue(OrderCodec.INSTANCE.fromMap("o1", mapperWritten).isPaid());
+        assertTrue(OrderCodec.INSTANCE.fromMap("o2", updated).isPaid());
+        assertFalse(OrderCodec.INSTANCE.fromMap("o3", new HashMap<>()).isPaid());
+    }
+
+    private interface Body {
+        void run() throws IOException;
+    }
+
+    /**
+     * Warm both paths up before measuring either, so neither runs on a cold JIT
+     */
+    private static void compare(String name, Body codec, Body gson) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            codec.run();
+            gson.run();
+        }
+        long codecNanos = time(codec);
+        long gsonNanos = time(gson);
+        System.out.printf("%-20s codec %8d us   gson %8d us   (%.1fx)%n",
+                name, codecNanos / 1000, gsonNanos / 1000, (double) gsonNanos / Math.max(1, codecNanos));
+    }
+
+    /**
+     * Average nanoseconds per round
+     */
+    private static long time(Body body) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            body.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_ROUNDS;
+    }
+
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getPrice(), actual.getPrice(), 0.0);
+        assertEquals(expected.getImageUrl(), actual.getImageUrl());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getCategoryId(), actual.getCategoryId());
+        assertEquals(expected.getUnit(), actual.getUnit());
+        assertEquals(expected.getStockQuantity(), actual.getStockQuantity());
+        assertEquals(expected.isAvailable(), actual.isAvailable());
+        assertEquals(expected.getRating(), actual.getRating(), 0.0);
+        assertEquals(expected.getReviewCount(), actual.getReviewCount());
+    }
+
+    /**
+     * Same shape Firestore hands back: integers as Long, decimals as Double
+     */
+    private static Map<String, Object> toFirestoreMap(Product product) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("productId", product.getProductId());
+        data.put("name", product.getName());
+        data.put("description", product.getDescription());
+        data.put("price", product.getPrice());
+        data.put("imageUrl", product.getImageUrl());
+        data.put("category", product.getCategory());
+        data.put("categoryId", product.getCategoryId());
+        data.put("unit", product.getUnit());
+        data.put("stockQuantity", (long) product.getStockQuantity());
+        data.put("available", product.isAvailable());
+        data.put("rating", product.getRating());
+        data.put("reviewCount", (long) product.getReviewCount());
+        return data;
+    }
+
+    private static List<Map<String, Object>> sampleDocuments() {
+        List<Map<String, Object>> documents = new ArrayList<>();
+        for (Product product : sampleProducts()) {
+            documents.add(toFirestoreMap(product));
+        }
+        return documents;
+    }
+
+    private static List<Product> sampleProducts() {
+        List<Product> products = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            Product product = new Product("p" + i, "Product " + i, "Fresh item number " + i,
+                    10 + i * 0.5, "https://example.com/images/" + i + ".jpg",
+                    "Category " + (i % 12), "c" + (i % 12), "kg", i % 7);
+            product.setRating((i % 50) / 10.0);
+            product.setReviewCount(i % 300);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static List<Order> sampleOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Order.OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                items.add(new Order.OrderItem("p" + j, "Product " + j, j + 1, 20 + j, null));
+            }
+            Order order = new Order("o" + i, "u" + (i % 10), items, 500 + i,
+                    "221B Baker Street", "COD");
+            order.setPaid(i % 2 == 0);
+            order.setOrderDate(new Date(1_700_000_000_000L + i * 60_000L));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
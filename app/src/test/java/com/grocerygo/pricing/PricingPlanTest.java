@@ -0,0 +1,124 @@
+package com.grocerygo.pricing;
+
+import com.grocerygo.models.CartItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks PricingPlan against hand-worked totals. Timing a 50-line cart is a benchmark,
+ * skipped unless asked for with ./gradlew test -Pbenchmarks; the timing is printed, not asserted.
+ */
+public class PricingPlanTest {
+    private static final int WARMUP_ROUNDS = 20000;
+    private static final int MEASURED_ROUNDS = 100000;
+
+    private final CartItemLines lines = new CartItemLines();
+    private final PriceBreakdown out = new PriceBreakdown();
+
+    @Test
+    public void defaultRules_matchTheOldHardCodedPricing() {
+        PricingPlan plan = PricingPlan.compile(new PricingRules());
+
+        // ₹120 cart: ₹40 delivery, 5% tax
+        plan.price(lines.wrap(cart(item("a", null, 60.0, 2))), null, out);
+        assertEquals(12000, out.getSubtotalPaise());
+        assertEquals(4000, out.getDeliveryFeePaise());
+        assertEquals(600, out.getTaxPaise());
+        assertEquals(16600, out.getTotalPaise());
+        assertEquals(16000, out.getTotalBeforeTaxPaise());
+
+        // Delivery is free from ₹500
+        plan.price(lines.wrap(cart(item("a", null, 250.0, 2))), null, out);
+        assertEquals(0, out.getDeliveryFeePaise());
+        assertEquals(52500, out.getTotalPaise());
+
+        // Nothing to deliver, nothing to charge
+        plan.price(lines.wrap(new ArrayList<>()), null, out);
+        assertEquals(0, out.getTotalPaise());
+    }
+
+    @Test
+    public void categoryDiscountsAndCoupons_areApplied() {
+        PricingRules rules = new PricingRules();
+        List<PricingRules.CategoryDiscount> discounts = new ArrayList<>();
+        discounts.add(new PricingRules.CategoryDiscount("dairy", 10));
+        discounts.add(new PricingRules.CategoryDiscount("dairy", 5)); // the better rule wins
+        rules.setCategoryDiscounts(discounts);
+        PricingRules.Coupon coupon = new PricingRules.Coupon();
+        coupon.setCode("save20");
+        coupon.setPercentOff(20);
+        coupon.setMaxDiscount(50);
+        coupon.setMinSubtotal(100);
+        List<PricingRules.Coupon> coupons = new ArrayList<>();
+        coupons.add(coupon);
+        rules.setCoupons(coupons);
+        PricingPlan plan = PricingPlan.compile(rules);
+
+        List<CartItem> cart = cart(item("milk", "dairy", 50.0, 2), item("bread", "bakery", 40.0, 1));
+        String code = PricingPlan.normalizeCouponCode(" Save20 ");
+        assertTrue(plan.hasCoupon(code));
+
+        plan.price(lines.wrap(cart), code, out);
+        assertEquals(14000, out.getSubtotalPaise());
+        assertEquals(1000, out.getCategoryDiscountPaise());             // 10% of ₹100 of dairy
+        assertEquals(2600, out.getCouponDiscountPaise());               // 20% of ₹130
+        assertEquals(PriceBreakdown.CouponStatus.APPLIED, out.getCouponStatus());
+        assertEquals(4000, out.getDeliveryFeePaise());
+        assertEquals(520, out.getTaxPaise());                           // 5% of ₹104
+        assertEquals(10400 + 4000 + 520, out.getTotalPaise());
+
+        // Below the coupon's minimum it is reported, not applied
+        plan.price(lines.wrap(cart(item("bread", "bakery", 40.0, 1))), code, out);
+        assertEquals(PriceBreakdown.CouponStatus.MIN_SUBTOTAL_NOT_MET, out.getCouponStatus());
+        assertEquals(0, out.getCouponDiscountPaise());
+
+        plan.price(lines.wrap(cart), "NOPE", out);
+        assertEquals(PriceBreakdown.CouponStatus.UNKNOWN, out.getCouponStatus());
+    }
+
+    @Test
+    public void fiftyLineCart_isPricedInMicroseconds() {
+        assumeTrue("Benchmark, run with ./gradlew test -Pbenchmarks", Boolean.getBoolean("benchmarks"));
+        PricingRules rules = new PricingRules();
+        List<PricingRules.CategoryDiscount> discounts = new ArrayList<>();
+        discounts.add(new PricingRules.CategoryDiscount("cat_3", 15));
+        rules.setCategoryDiscounts(discounts);
+        PricingPlan plan = PricingPlan.compile(rules);
+
+        List<CartItem> cart = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cart.add(item("prod_" + i, "cat_" + (i % 7), 10.5 + i, 1 + i % 5));
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            plan.price(lines.wrap(cart), null, out);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            plan.price(lines.wrap(cart), null, out);
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / MEASURED_ROUNDS;
+        System.out.printf("50-line cart priced in %.2f us%n", micros);
+        assertTrue(out.getTotalPaise() > 0);
+    }
+
+    private static CartItem item(String productId, String categoryId, double price, int quantity) {
+        CartItem item = new CartItem(productId, productId, null, price, "kg", quantity);
+        item.setCategoryId(categoryId);
+        return item;
+    }
+
+    private static List<CartItem> cart(CartItem... items) {
+        List<CartItem> cart = new ArrayList<>();
+        for (CartItem item : items) {
+            cart.add(item);
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Trusted order placement for GroceryGo.
+ *
+ * placeOrder is the only way an order gets written: firestore.rules let no client create
+ * orders or touch stock. In one transaction it prices every line from the product documents
+ * and config/pricing (never from what the client sent), takes the units out of stock, plain
+ * or sharded (see StockShards on the app side), and writes the order for the signed-in user.
+ * The client's own line prices and total must match, so the buyer is never charged something
+ * other than what checkout showed.
+ *
+ * Called by OrderRepository.placeOrderAtomically. Rejections carry details.reason, which the
+ * app turns back into InsufficientStockException / PriceChangedException:
+ *   INSUFFICIENT_STOCK {productId, productName, available}
+ *   PRICE_CHANGED      {productId, productName, price}
+ *   TOTAL_CHANGED      {total}
+ */
+"use strict";
+
+const {onCall, HttpsError} = require("firebase-functions/v2/https");
+const {initializeApp} = require("firebase-admin/app");
+const {getFirestore, Timestamp} = require("firebase-admin/firestore");
+const pricing = require("./pricing");
+
+initializeApp();
+const db = getFirestore();
+
+// Attempts per placement when other checkouts keep changing the same products
+const MAX_TRANSACTION_ATTEMPTS = 8;
+const MAX_ORDER_LINES = 100;
+
+exports.placeOrder = onCall(async (request) => {
+  if (!request.auth) {
+    throw new HttpsError("unauthenticated", "Sign in to place an order");
+  }
+  const userId = request.auth.uid;
+  const input = request.data || {};
+  const orderId = input.orderId;
+  if (typeof orderId !== "string" || !/^[A-Za-z0-9]{1,64}$/.test(orderId)) {
+    throw new HttpsError("invalid-argument", "Order id is missing or malformed");
+  }
+  const quantities = parseLines(input.items);
+
+  const couponCode = pricing.normalizeCouponCode(input.couponCode);
+  const rulesSnapshot = await db.doc("config/pricing").get();
+  const plan = pricing.compile(rulesSnapshot.exists ? rulesSnapshot.data() : undefined);
+
+  const orderRef = db.collection("orders").doc(orderId);
+  let attempts = 0;
+  await db.runTransaction(async (transaction) => {
+    attempts++;
+
+    // Same key as an order that already went through: a retry, nothing more to do
+    const existing = await transaction.get(orderRef);
+    if (existing.exists) {
+      if (existing.get("userId") !== userId) {
+        throw new HttpsError("already-exists", "Order id is already taken");
+      }
+      return;
+    }
+
+    // Every read has to happen before the first write, so writes are queued until then
+    const writes = [];
+    const items = [];
+    const lines = [];
+    for (const [productId, line] of quantities) {
+      const productRef = db.collection("products").doc(productId);
+      const product = await transaction.get(productRef);
+      const price = product.exists ? product.get("price") : undefined;
+      const name = (product.exists && product.get("name")) || line.productName || productId;
+      if (typeof price !== "number" || product.get("available") === false) {
+        throw stockError(productId, name, 0);
+      }
+      if (pricing.toPaise(price) !== pricing.toPaise(line.price)) {
+        throw new HttpsError("failed-precondition", `The price of ${name} has changed`,
+            {reason: "PRICE_CHANGED", productId, productName: name, price});
+      }
+
+      let available;
+      if (isSharded(product)) {
+        available = await takeFromShards(transaction, productRef, product.get("stockShards"),
+            line.quantity, writes);
+      } else {
+        const stockQuantity = product.get("stockQuantity");
+        available = typeof stockQuantity === "number" ? stockQuantity : 0;
+        const remaining = available - line.quantity;
+        const stillAvailable = product.get("available") === true && remaining > 0;
+        writes.push(() => transaction.update(productRef,
+            {stockQuantity: remaining, available: stillAvailable}));
+      }
+      if (available < line.quantity) {
+        throw stockError(productId, name, available);
+      }
+
+      items.push({
+        productId,
+        productName: name,
+        quantity: line.quantity,
+        price,
+        imageUrl: product.get("imageUrl") || line.imageUrl || null,
+      });
+      lines.push({
+        unitPricePaise: pricing.toPaise(price),
+        quantity: line.quantity,
+        categoryId: product.get("categoryId") || null,
+      });
+    }
+
+    const totalPaise = pricing.totalPaise(plan, lines, couponCode);
+    if (totalPaise !== pricing.toPaise(Number(input.totalAmount))) {
+      throw new HttpsError("failed-precondition", "Your order total has changed",
+          {reason: "TOTAL_CHANGED", total: totalPaise / 100});
+    }
+
+    for (const write of writes) {
+      write();
+    }
+    transaction.set(orderRef, {
+      userId,
+      items,
+      itemCount: items.reduce((count, item) => count + item.quantity, 0),
+      totalAmount: totalPaise / 100,
+      couponCode,
+      deliveryAddress: String(input.deliveryAddress || ""),
+      paymentMethod: String(input.paymentMethod || ""),
+      paid: input.paid === true,
+      status: "pending",
+      confirmed: false,
+      assignedDeliveryPartner: null,
+      deliveryPartnerName: null,
+      orderDate: orderDate(input.orderDate),
+      deliveryDate: null,
+    });
+  }, {maxAttempts: MAX_TRANSACTION_ATTEMPTS});
+
+  return {orderId, attempts};
+});
+
+/**
+ * productId -> {quantity, price, productName, imageUrl}; repeated lines are summed
+ */
+function parseLines(items) {
+  if (!Array.isArray(items) || items.length === 0 || items.length > MAX_ORDER_LINES) {
+    throw new HttpsError("invalid-argument", "Order has no items");
+  }
+  const lines = new Map();
+  for (const item of items) {
+    const productId = item && item.productId;
+    const quantity = item && item.quantity;
+    if (typeof productId !== "string" || productId === "" || productId.includes("/")
+        || !Number.isInteger(quantity) || quantity <= 0 || typeof item.price !== "number") {
+      throw new HttpsError("invalid-argument", "Order has a malformed item");
+    }
+    const line = lines.get(productId);
+    if (line) {
+      line.quantity += quantity;
+    } else {
+      lines.set(productId, {quantity, price: item.price,
+        productName: item.productName, imageUrl: item.imageUrl});
+    }
+  }
+  return lines;
+}
+
+function isSharded(product) {
+  const shards = product.get("stockShards");
+  return typeof shards === "number" && shards > 0;
+}
+
+/**
+ * Queue the writes that take wanted units out of a sharded product, visiting shards from a
+ * random one so concurrent checkouts rarely touch the same shard. Returns the units found.
+ */
+async function takeFromShards(transaction, productRef, shardCount, wanted, writes) {
+  const start = Math.floor(Math.random() * shardCount);
+  let taken = 0;
+  let left = 0;
+  let visited = 0;
+  while (visited < shardCount && taken < wanted) {
+    const shardRef = productRef.collection("stockShards").doc(String((start + visited) % shardCount));
+    visited++;
+    const count = (await transaction.get(shardRef)).get("count");
+    if (typeof count !== "number" || count <= 0) continue;
+
+    const take = Math.min(count, wanted - taken);
+    taken += take;
+    left += count - take;
+    writes.push(() => transaction.update(shardRef, {count: count - take}));
+  }
+
+  // Every shard was read and this order empties them all: mark the product sold out
+  if (visited === shardCount && taken === wanted && left === 0) {
+    writes.push(() => transaction.update(productRef, {available: false}));
+  }
+  return taken;
+}
+
+function stockError(productId, productName, available) {
+  return new HttpsError("failed-precondition",
+      available > 0 ? `${productName} only has ${available} left in stock` : `${productName} is out of stock`,
+      {reason: "INSUFFICIENT_STOCK", productId, productName, available});
+}
+
+/**
+ * When the buyer checked out (orders queued offline reach us later); never in the future
+ */
+function orderDate(millis) {
+  const now = Date.now();
+  return Timestamp.fromMillis(typeof millis === "number" && millis > 0 ? Math.min(millis, now) : now);
+}
@@ -0,0 +1,112 @@
+/**
+ * Server copy of com.grocerygo.pricing.PricingPlan: the same rules from config/pricing,
+ * the same paise and basis-point arithmetic, so a total priced on the device matches the
+ * one computed here to the paisa. Change both together.
+ */
+"use strict";
+
+const BASIS_POINTS = 10000;
+
+const DEFAULT_TAX_PERCENT = 5;
+const DEFAULT_DELIVERY_FEE = 40;
+const DEFAULT_FREE_DELIVERY_THRESHOLD = 500;
+
+// Java's Math.round: half up
+function toPaise(rupees) {
+  return Math.round(rupees * 100);
+}
+
+function number(value) {
+  return typeof value === "number" ? value : 0;
+}
+
+function percentToBasisPoints(percent) {
+  return Math.max(0, Math.min(BASIS_POINTS, Math.round(number(percent) * 100)));
+}
+
+// amount * basisPoints / 10000, rounded half up
+function applyBasisPoints(amountPaise, basisPoints) {
+  return Math.floor((amountPaise * basisPoints + BASIS_POINTS / 2) / BASIS_POINTS);
+}
+
+function normalizeCouponCode(code) {
+  if (typeof code !== "string") return null;
+  const trimmed = code.trim();
+  return trimmed === "" ? null : trimmed.toUpperCase();
+}
+
+/**
+ * Compile config/pricing (may be undefined); fields left out keep the built-in defaults
+ */
+function compile(rules) {
+  rules = rules || {};
+  const categories = new Map();
+  for (const discount of Array.isArray(rules.categoryDiscounts) ? rules.categoryDiscounts : []) {
+    if (!discount || typeof discount.categoryId !== "string") continue;
+    const basisPoints = percentToBasisPoints(discount.percentOff);
+    const existing = categories.get(discount.categoryId);
+    // Overlapping rules for one category don't stack; the best one wins
+    if (basisPoints > 0 && (existing === undefined || basisPoints > existing)) {
+      categories.set(discount.categoryId, basisPoints);
+    }
+  }
+
+  const coupons = new Map();
+  for (const coupon of Array.isArray(rules.coupons) ? rules.coupons : []) {
+    const code = coupon ? normalizeCouponCode(coupon.code) : null;
+    if (code === null) continue;
+    coupons.set(code, {
+      percentBasisPoints: percentToBasisPoints(coupon.percentOff),
+      amountOffPaise: Math.max(0, toPaise(number(coupon.amountOff))),
+      minSubtotalPaise: Math.max(0, toPaise(number(coupon.minSubtotal))),
+      maxDiscountPaise: Math.max(0, toPaise(number(coupon.maxDiscount))),
+      freeDelivery: coupon.freeDelivery === true,
+    });
+  }
+
+  const valueOr = (value, fallback) => (typeof value === "number" ? value : fallback);
+  return {
+    taxBasisPoints: percentToBasisPoints(valueOr(rules.taxPercent, DEFAULT_TAX_PERCENT)),
+    deliveryFeePaise: Math.max(0, toPaise(valueOr(rules.deliveryFee, DEFAULT_DELIVERY_FEE))),
+    freeDeliveryFromPaise: Math.max(0,
+        toPaise(valueOr(rules.freeDeliveryThreshold, DEFAULT_FREE_DELIVERY_THRESHOLD))),
+    categoryBasisPoints: categories,
+    coupons,
+  };
+}
+
+/**
+ * lines: [{unitPricePaise, quantity, categoryId}]; couponCode normalized or null.
+ * Returns the total in paise, as PriceBreakdown.getTotalPaise would.
+ */
+function totalPaise(plan, lines, couponCode) {
+  let subtotal = 0;
+  let categoryDiscount = 0;
+  for (const line of lines) {
+    const lineTotal = line.unitPricePaise * line.quantity;
+    subtotal += lineTotal;
+    const basisPoints = line.categoryId ? plan.categoryBasisPoints.get(line.categoryId) : undefined;
+    if (basisPoints !== undefined) {
+      categoryDiscount += applyBasisPoints(lineTotal, basisPoints);
+    }
+  }
+
+  const itemTotal = subtotal - categoryDiscount;
+  let freeDelivery = itemTotal >= plan.freeDeliveryFromPaise;
+  let couponDiscount = 0;
+  const coupon = couponCode ? plan.coupons.get(couponCode) : undefined;
+  if (coupon && itemTotal >= coupon.minSubtotalPaise) {
+    let discount = applyBasisPoints(itemTotal, coupon.percentBasisPoints) + coupon.amountOffPaise;
+    if (coupon.maxDiscountPaise > 0) {
+      discount = Math.min(discount, coupon.maxDiscountPaise);
+    }
+    couponDiscount = Math.min(discount, itemTotal);
+    freeDelivery = freeDelivery || coupon.freeDelivery;
+  }
+
+  const deliveryFee = subtotal > 0 && !freeDelivery ? plan.deliveryFeePaise : 0;
+  const tax = applyBasisPoints(itemTotal - couponDiscount, plan.taxBasisPoints);
+  return itemTotal - couponDiscount + deliveryFee + tax;
+}
+
+module.exports = {compile, totalPaise, toPaise, normalizeCouponCode};